@@ -12,6 +12,7 @@ import com.portkullis.projectdesigner.exception.ProjectDesignerRuntimeException;
 import com.portkullis.projectdesigner.model.Activity;
 import com.portkullis.projectdesigner.model.Plan;
 import com.portkullis.projectdesigner.model.Project;
+import com.portkullis.projectdesigner.model.Span;
 
 import java.util.Date;
 import java.util.HashMap;
@@ -28,7 +29,17 @@ public abstract class AbstractVisualizationSpike implements Runnable {
 
     private final VisualizationEngine visualizationEngine = new VisualizationEngineImpl();
     private final CalculationEngine calculationEngine = new CalculationEngineImpl();
-    private final AssignmentEngine<Activity, String> assignmentEngine = new AssignmentEngineImpl<>();
+    private final AssignmentEngine<Activity, String> assignmentEngine = new AssignmentEngineImpl<>(new AssignmentEngine.AssignmentListener<Activity, String>() {
+        @Override
+        public void activityScheduled(Activity activity, int start, int end) {
+            System.out.println("Activity Span: " + new Span<>(start, end, activity));
+        }
+
+        @Override
+        public void resourceAssigned(Activity activity, String resource, int start, int end) {
+            System.out.println("Assigning " + resource + " to " + activity);
+        }
+    });
 
     private final Project<Activity, String> project = new Project<>();
     private final Plan<Activity, String> plan = new Plan<>();
@@ -3,6 +3,7 @@ package com.portkullis.projectdesigner.adapter;
 import com.portkullis.projectdesigner.engine.impl.Edge;
 import com.portkullis.projectdesigner.engine.impl.Graph;
 import com.portkullis.projectdesigner.engine.impl.Node;
+import com.portkullis.projectdesigner.engine.impl.TopologicalOrder;
 import com.portkullis.projectdesigner.model.*;
 
 import java.util.*;
@@ -26,6 +27,7 @@ abstract class AbstractProjectDataAdapter {
     private final Map<Activity, Node> activityNodes = new HashMap<>();
     private final Map<Node, Activity> nodeActivities = new HashMap<>();
 
+    private TopologicalOrder<Activity> activityOrder = null;
     private Graph<?> activityGraph = null;
     private final Map<Activity, Integer> activityEarlyStarts = new HashMap<>();
     private final Map<Activity, Integer> activityLateStarts = new HashMap<>();
@@ -35,6 +37,7 @@ abstract class AbstractProjectDataAdapter {
     }
 
     void clearCaches() {
+        activityOrder = null;
         activityGraph = null;
         activityEarlyStarts.clear();
         activityLateStarts.clear();
@@ -44,8 +47,24 @@ abstract class AbstractProjectDataAdapter {
         return project.getPlans().computeIfAbsent(project.getActivePlan(), p -> new Plan<>());
     }
 
+    /**
+     * Returns the utility data activities sorted by their prerequisites.
+     *
+     * @return the activities in topological order.
+     * @throws com.portkullis.projectdesigner.exception.CyclicDependencyException if the prerequisites contain a cycle.
+     */
+    TopologicalOrder<Activity> getActivityOrder() {
+        if (activityOrder == null) {
+            activityOrder = TopologicalOrder.of(project.getUtilityData(), Activity::getPrerequisites);
+        }
+        return activityOrder;
+    }
+
     private Graph<?> getActivityGraph() {
         if (activityGraph == null) {
+            // Validate the prerequisites before building anything on top of them...
+            getActivityOrder();
+
             activityNodes.clear();
             nodeActivities.clear();
 
@@ -109,36 +128,40 @@ abstract class AbstractProjectDataAdapter {
     }
 
     private Set<Node> getAllPredecessors(Node node) {
-        Set<Node> directPredecessors = getActivityGraph().getEdges().stream()
-                .filter(e -> e.getEnd().equals(node))
-                .map(Edge::getStart)
-                .collect(toSet());
-
         Set<Node> predecessors = new HashSet<>();
-        for (Node directPredecessor : directPredecessors) {
-            predecessors.add(directPredecessor);
-            predecessors.addAll(getAllPredecessors(directPredecessor));
+        Deque<Node> nodesToVisit = new ArrayDeque<>();
+        nodesToVisit.add(node);
+        while (!nodesToVisit.isEmpty()) {
+            getActivityGraph().getInEdges(nodesToVisit.poll()).stream()
+                    .map(Edge::getStart)
+                    .filter(predecessors::add)
+                    .forEach(nodesToVisit::add);
         }
 
         return predecessors;
     }
 
     int getEarlyStartFromGraph(Activity activity) {
-        return activityEarlyStarts.computeIfAbsent(activity, a -> {
-            // Initialize the activity graph...
-            getActivityGraph();
+        Integer cachedEarlyStart = activityEarlyStarts.get(activity);
+        if (cachedEarlyStart != null) {
+            return cachedEarlyStart;
+        }
 
-            Node node = activityNodes.get(a);
+        // Initialize the activity graph...
+        getActivityGraph();
 
-            return getActivityGraph().getEdges().stream()
-                    .filter(e -> e.getEnd().equals(node))
-                    .mapToInt(e -> {
-                        Activity prereq = nodeActivities.get(e.getStart());
-                        return getEarlyStartFromGraph(prereq) + prereq.getDuration();
-                    })
-                    .max()
-                    .orElse(0);
-        });
+        Node node = activityNodes.get(activity);
+
+        // Not computeIfAbsent(), since the recursion adds the prerequisites' early starts to the same map...
+        int earlyStart = getActivityGraph().getInEdges(node).stream()
+                .mapToInt(e -> {
+                    Activity prereq = nodeActivities.get(e.getStart());
+                    return getEarlyStartFromGraph(prereq) + prereq.getDuration();
+                })
+                .max()
+                .orElse(0);
+        activityEarlyStarts.put(activity, earlyStart);
+        return earlyStart;
     }
 
     int getLateStartFromGraph(Activity activity) {
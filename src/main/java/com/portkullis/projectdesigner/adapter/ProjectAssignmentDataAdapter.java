@@ -47,6 +47,21 @@ public class ProjectAssignmentDataAdapter extends AbstractProjectDataAdapter imp
         );
     }
 
+    @Override
+    public Collection<String> getAssignedResources(Activity activity) {
+        return unmodifiableSet(getActivePlan().getActivityAssignments().getOrDefault(activity, emptySet()));
+    }
+
+    @Override
+    public int getDuration(Activity activity) {
+        return activity.getDuration();
+    }
+
+    @Override
+    public Collection<Activity> getDirectPrerequisites(Activity activity) {
+        return unmodifiableSet(activity.getPrerequisites());
+    }
+
     @Override
     public int getEarliestStart(Activity activity) {
         return getEarlyStartFromGraph(activity);
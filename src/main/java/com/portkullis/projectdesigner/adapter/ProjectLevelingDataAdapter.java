@@ -0,0 +1,52 @@
+package com.portkullis.projectdesigner.adapter;
+
+import com.portkullis.projectdesigner.engine.LevelingEngine;
+import com.portkullis.projectdesigner.model.Activity;
+import com.portkullis.projectdesigner.model.Project;
+
+import java.util.Collection;
+import java.util.Set;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableSet;
+
+/**
+ * Project data adapter for the leveling engine. The demand is leveled for the resource types of the active plan.
+ */
+public class ProjectLevelingDataAdapter extends AbstractProjectDataAdapter implements LevelingEngine.ProjectData<Activity> {
+
+    /**
+     * Constructs the adapter.
+     *
+     * @param project the project to adapt.
+     */
+    public ProjectLevelingDataAdapter(Project<Activity, String> project) {
+        super(project);
+    }
+
+    @Override
+    public Collection<Activity> getActivities() {
+        return unmodifiableList(project.getUtilityData());
+    }
+
+    @Override
+    public int getDuration(Activity activity) {
+        return activity.getDuration();
+    }
+
+    @Override
+    public Collection<Activity> getDirectPrerequisites(Activity activity) {
+        return unmodifiableSet(activity.getPrerequisites());
+    }
+
+    @Override
+    public String getResourceType(Activity activity) {
+        return project.getActivityTypes().get(activity);
+    }
+
+    @Override
+    public Set<String> getResourceTypes() {
+        return unmodifiableSet(getActivePlan().getResourceTypes().keySet());
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.portkullis.projectdesigner.adapter;
+
+import com.portkullis.projectdesigner.engine.PlanEvaluationEngine;
+import com.portkullis.projectdesigner.model.Activity;
+import com.portkullis.projectdesigner.model.Plan;
+import com.portkullis.projectdesigner.model.Project;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.SortedSet;
+
+import static java.util.Collections.*;
+
+/**
+ * Project data adapter for the plan evaluation engine. Unlike the other adapters, it gives access to every plan of the
+ * project rather than only the active plan.
+ */
+public class ProjectPlanEvaluationDataAdapter extends AbstractProjectDataAdapter implements PlanEvaluationEngine.ProjectData<Activity, String> {
+
+    /**
+     * Constructs the adapter.
+     *
+     * @param project the project to adapt.
+     */
+    public ProjectPlanEvaluationDataAdapter(Project<Activity, String> project) {
+        super(project);
+
+        // Create any missing collections now, since plans may be evaluated in parallel...
+        project.getUtilityData();
+        project.getActivityTypes();
+        project.getPlans().values().forEach(p -> {
+            p.getActivityAssignments();
+            p.getResourceTypes();
+        });
+    }
+
+    @Override
+    public Collection<Activity> getActivities() {
+        return unmodifiableList(project.getUtilityData());
+    }
+
+    @Override
+    public int getDuration(Activity activity) {
+        return activity.getDuration();
+    }
+
+    @Override
+    public Collection<Activity> getDirectPrerequisites(Activity activity) {
+        return unmodifiableSet(activity.getPrerequisites());
+    }
+
+    @Override
+    public String getResourceType(Activity activity) {
+        return project.getActivityTypes().get(activity);
+    }
+
+    @Override
+    public Set<String> getPlanNames() {
+        return unmodifiableSet(project.getPlans().keySet());
+    }
+
+    @Override
+    public Collection<String> getAssignedResources(String plan, Activity activity) {
+        return unmodifiableSet(getPlan(plan).getActivityAssignments().getOrDefault(activity, emptySet()));
+    }
+
+    @Override
+    public SortedSet<String> getResourcesOfType(String plan, String resourceType) {
+        return getPlan(plan).getResourceTypes().get(resourceType);
+    }
+
+    private Plan<Activity, String> getPlan(String plan) {
+        return project.getPlans().get(plan);
+    }
+
+}
@@ -17,6 +17,10 @@ public interface AssignmentEngine<A, R> {
      * Automatically assigns a resources to all activities that do not already have a resource based on each activity's
      * resource type and total float. For each resource type, the first resources in the resource list for the resource
      * type will be used, if available, before later resources.
+     * <p>
+     * Activities are scheduled one at a time in order of their earliest start and then their total float. Each
+     * activity starts once its prerequisites are finished and a resource of its type is available, and is assigned
+     * to the first available resource; activities that are already assigned wait for all of their resources instead.
      *
      * @param project the project for which to assign resources.
      */
@@ -32,6 +36,49 @@ public interface AssignmentEngine<A, R> {
      */
     void assignResourceToActivity(ProjectData<A, R> project, R resource, A activity);
 
+    /**
+     * Receives trace events from automatic resource assignment. Every method does nothing by default, and events carry
+     * the scheduling data itself rather than formatted messages, so a listener that ignores an event costs nothing.
+     * Listeners are called from the assigning thread, in scheduling order.
+     *
+     * @param <A> the activity type.
+     * @param <R> the resource type.
+     */
+    interface AssignmentListener<A, R> {
+
+        /**
+         * Called when an activity has to wait for a resource, and is postponed until one is free.
+         *
+         * @param activity      the activity.
+         * @param earliestStart the time at which the prerequisites of the activity are finished.
+         * @param resourceStart the time at which a resource is free for the activity.
+         */
+        default void activityPostponed(A activity, int earliestStart, int resourceStart) {
+        }
+
+        /**
+         * Called when the start of an activity has been decided.
+         *
+         * @param activity the activity.
+         * @param start    the start time of the activity.
+         * @param end      the end time of the activity.
+         */
+        default void activityScheduled(A activity, int start, int end) {
+        }
+
+        /**
+         * Called when a resource has been assigned to an activity.
+         *
+         * @param activity the activity.
+         * @param resource the assigned resource.
+         * @param start    the start time of the activity.
+         * @param end      the end time of the activity.
+         */
+        default void resourceAssigned(A activity, R resource, int start, int end) {
+        }
+
+    }
+
     /**
      * Expected project interface.
      *
@@ -61,6 +108,31 @@ public interface AssignmentEngine<A, R> {
          */
         Collection<A> getUnassignedActivities();
 
+        /**
+         * Returns the resources that are assigned to the activity.
+         *
+         * @param activity the activity.
+         * @return the assigned resources, which are empty if the activity is unassigned.
+         */
+        Collection<R> getAssignedResources(A activity);
+
+        /**
+         * Returns the duration of the activity.
+         *
+         * @param activity the activity.
+         * @return the duration of the activity.
+         */
+        int getDuration(A activity);
+
+        /**
+         * Returns the prerequisites of the activity itself, without any dependencies that result from the resource
+         * assignments.
+         *
+         * @param activity the activity.
+         * @return the prerequisites of the activity.
+         */
+        Collection<A> getDirectPrerequisites(A activity);
+
         /**
          * Returns the earliest start of the activity.
          *
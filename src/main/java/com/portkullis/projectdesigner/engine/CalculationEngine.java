@@ -1,9 +1,15 @@
 package com.portkullis.projectdesigner.engine;
 
 import java.util.Collection;
+import java.util.List;
 
 /**
  * Methods that perform calculations on projects.
+ * <p>
+ * The methods for a single activity may keep the times of the activity's network once they are calculated, so that
+ * later calls are lookups. They do not watch the activities for changes: after editing the duration or prerequisites
+ * of an activity, callers must notify the engine with {@link #durationChanged(ActivityData)} or
+ * {@link #prerequisitesChanged(ActivityData)}, or the old times are returned.
  *
  * @author darius
  */
@@ -49,6 +55,133 @@ public interface CalculationEngine {
      */
     int getTotalFloat(ActivityData activity);
 
+    /**
+     * Calculates the schedule of a set of activities in one pass. The schedule also covers every activity that is
+     * connected to the given activities through their prerequisites or successors.
+     *
+     * @param activities the activities to schedule.
+     * @return the schedule of the activities.
+     */
+    Schedule calculateSchedule(Collection<? extends ActivityData> activities);
+
+    /**
+     * Notifies the engine that the duration of an activity has changed, so that the times it has kept for the
+     * activity's network can be updated. Schedules returned by {@link #calculateSchedule(Collection)} are not updated;
+     * they must be notified themselves.
+     *
+     * @param activity the changed activity.
+     */
+    void durationChanged(ActivityData activity);
+
+    /**
+     * Notifies the engine that the prerequisites of an activity have changed, along with the successors of its old
+     * and new prerequisites, so that the times it has kept for the networks involved can be updated. Schedules
+     * returned by {@link #calculateSchedule(Collection)} are not updated; they must be notified themselves.
+     *
+     * @param activity the changed activity.
+     */
+    void prerequisitesChanged(ActivityData activity);
+
+    /**
+     * The calculated times of a set of activities. Each activity has a dense index, and the times of the activity are
+     * stored at that index in each of the arrays. The arrays are shared with the schedule and must not be modified.
+     * They are updated in place when the schedule is notified of a change to an activity.
+     * <p>
+     * A schedule does not watch its activities for changes. After editing an activity, the caller must either notify
+     * every schedule that holds it, or calculate the schedule again. The project data adapters do not use schedules,
+     * and still calculate their times again after every change.
+     */
+    interface Schedule {
+
+        /**
+         * Returns the scheduled activities, in index order. Every activity appears after all of its prerequisites.
+         *
+         * @return the scheduled activities.
+         */
+        List<ActivityData> getActivities();
+
+        /**
+         * Returns the index of an activity.
+         *
+         * @param activity the activity.
+         * @return the index of the activity, or -1 if the activity is not part of the schedule.
+         */
+        int indexOf(ActivityData activity);
+
+        /**
+         * Returns the earliest start times of the activities.
+         *
+         * @return the earliest start times, by activity index.
+         */
+        int[] getEarliestStarts();
+
+        /**
+         * Returns the earliest end times of the activities.
+         *
+         * @return the earliest end times, by activity index.
+         */
+        int[] getEarliestEnds();
+
+        /**
+         * Returns the latest start times of the activities.
+         *
+         * @return the latest start times, by activity index.
+         */
+        int[] getLatestStarts();
+
+        /**
+         * Returns the latest end times of the activities.
+         *
+         * @return the latest end times, by activity index.
+         */
+        int[] getLatestEnds();
+
+        /**
+         * Returns the total float of the activities.
+         *
+         * @return the total floats, by activity index.
+         */
+        int[] getTotalFloats();
+
+        /**
+         * Returns the free float of the activities; that is, how long each activity can be delayed without delaying
+         * the earliest start of any of its successors.
+         *
+         * @return the free floats, by activity index.
+         */
+        int[] getFreeFloats();
+
+        /**
+         * Returns the critical path: the longest chain of activities in the schedule, starting with an activity that
+         * has no prerequisites.
+         *
+         * @return the indices of the activities on the critical path, in order.
+         */
+        int[] getCriticalPath();
+
+        /**
+         * Updates the times that depend on the duration of an activity, after the duration has changed. Only the
+         * activities whose times actually change are recalculated. Changes to activities that are not part of the
+         * schedule are ignored.
+         *
+         * @param activity the changed activity.
+         */
+        void durationChanged(ActivityData activity);
+
+        /**
+         * Updates the times that depend on the prerequisites of an activity, after the prerequisites have changed
+         * along with the successors of its old and new prerequisites. Only the activities whose times actually change
+         * are recalculated. The update is not possible if the activity is not part of the schedule, if the change
+         * connects the schedule to activities outside of it, or if a new prerequisite comes after the activity in the
+         * order of the schedule; the schedule is then left unchanged, and must be calculated again.
+         *
+         * @param activity the changed activity.
+         * @return {@code true} if the schedule was updated; {@code false} if it must be calculated again.
+         */
+        boolean prerequisitesChanged(ActivityData activity);
+
+    }
+
     /**
      * Activity data interface.
      */
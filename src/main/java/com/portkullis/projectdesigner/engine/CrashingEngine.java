@@ -0,0 +1,75 @@
+package com.portkullis.projectdesigner.engine;
+
+import com.portkullis.projectdesigner.model.CrashOption;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Engine for shortening the schedule of a project at the lowest cost, by crashing critical activities.
+ */
+public interface CrashingEngine {
+
+    /**
+     * Shortens the schedule of a set of activities one duration unit at a time, each time crashing the cheapest set of
+     * activities that shortens every critical path, until the project completes by the target time or can not be
+     * shortened any further. The plan also covers every activity that is connected to the given activities through
+     * their prerequisites or successors. Activities without a crash option are never crashed, and the activities
+     * themselves are not changed.
+     *
+     * @param activities     the activities to crash.
+     * @param crashOptions   the crash options of the activities that can be crashed.
+     * @param targetDuration the time by which the project should complete.
+     * @return the crash plan.
+     */
+    CrashPlan crash(Collection<? extends CalculationEngine.ActivityData> activities,
+                    Map<? extends CalculationEngine.ActivityData, CrashOption> crashOptions,
+                    int targetDuration);
+
+    /**
+     * The result of crashing a project.
+     */
+    interface CrashPlan {
+
+        /**
+         * Returns the activities in the plan. The index of each activity in this list is its index in
+         * {@link #getDurations()}.
+         *
+         * @return the activities.
+         */
+        List<CalculationEngine.ActivityData> getActivities();
+
+        /**
+         * Returns the crashed duration of each activity.
+         *
+         * @return the durations, by activity index.
+         */
+        int[] getDurations();
+
+        /**
+         * Returns the time at which the crashed project completes.
+         *
+         * @return the completion time.
+         */
+        int getCompletionTime();
+
+        /**
+         * Returns the total cost of crashing the project to its completion time.
+         *
+         * @return the total crash cost.
+         */
+        double getTotalCost();
+
+        /**
+         * Returns the crash curve of the project: the total cost of crashing the project to each completion time that
+         * was reached, starting with the uncrashed completion time at no cost.
+         *
+         * @return the total crash cost by completion time.
+         */
+        SortedMap<Integer, Double> getCrashCurve();
+
+    }
+
+}
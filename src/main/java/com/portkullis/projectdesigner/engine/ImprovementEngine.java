@@ -0,0 +1,69 @@
+package com.portkullis.projectdesigner.engine;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Engine for improving the resource assignments of a project, after activities have been assigned to resources.
+ *
+ * @param <A> the activity type.
+ * @param <R> the resource type.
+ */
+public interface ImprovementEngine<A, R> {
+
+    /**
+     * Searches for resource assignments that complete the project earlier than the current assignments, until the
+     * deadline passes or the search is cancelled. Activities without resources are first given one as by the
+     * assignment engine. The search then only moves activities that have exactly one resource of their resource type,
+     * and only to other resources of that type; all other assignments are kept. The project itself is not changed.
+     *
+     * @param project      the project.
+     * @param deadline     the time at which to stop searching.
+     * @param cancellation checked regularly while searching, possibly from other threads; the search stops as soon as
+     *                     it returns {@code true}.
+     * @return the best assignments that were found.
+     */
+    Improvement<A, R> improve(AssignmentEngine.ProjectData<A, R> project, Instant deadline,
+                              BooleanSupplier cancellation);
+
+    /**
+     * The result of improving the resource assignments of a project.
+     *
+     * @param <A> the activity type.
+     * @param <R> the resource type.
+     */
+    interface Improvement<A, R> {
+
+        /**
+         * Returns the best resource for each activity that the search was allowed to move. These are the current
+         * assignments if no better ones were found.
+         *
+         * @return the resource of each movable activity.
+         */
+        Map<A, R> getAssignments();
+
+        /**
+         * Returns the time at which the project completes with the current assignments.
+         *
+         * @return the initial completion time.
+         */
+        int getInitialCompletionTime();
+
+        /**
+         * Returns the time at which the project completes with the best assignments.
+         *
+         * @return the improved completion time.
+         */
+        int getCompletionTime();
+
+        /**
+         * Returns the number of moves that were evaluated by the search.
+         *
+         * @return the number of evaluated moves.
+         */
+        long getEvaluatedMoves();
+
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.portkullis.projectdesigner.engine;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Engine for leveling the demand for each resource type of a project, by delaying activities within their total
+ * float.
+ *
+ * @param <A> the activity type.
+ */
+public interface LevelingEngine<A> {
+
+    /**
+     * Levels the demand for each resource type of a project. Every activity starts no earlier than its earliest start
+     * and no later than its latest start, after its prerequisites are finished, so the project completes at the same
+     * time as without leveling. Each activity creates a demand of one resource of its type while it runs; activities
+     * whose type is not one of the resource types of the project start as early as their prerequisites allow. The
+     * project itself is not changed.
+     *
+     * @param project the project.
+     * @return the leveled schedule.
+     */
+    LevelingPlan<A> level(ProjectData<A> project);
+
+    /**
+     * Interface to project data required by the leveling engine.
+     *
+     * @param <A> the activity type.
+     */
+    interface ProjectData<A> {
+
+        /**
+         * Returns the activities that are defined for the project.
+         *
+         * @return the activities that are defined for the project.
+         */
+        Collection<A> getActivities();
+
+        /**
+         * Returns the duration of the activity.
+         *
+         * @param activity the activity.
+         * @return the duration of the activity.
+         */
+        int getDuration(A activity);
+
+        /**
+         * Returns the prerequisites of the activity itself, without any dependencies that result from resource
+         * assignments.
+         *
+         * @param activity the activity.
+         * @return the prerequisites of the activity.
+         */
+        Collection<A> getDirectPrerequisites(A activity);
+
+        /**
+         * Returns the resource type that must perform the activity.
+         *
+         * @param activity the activity.
+         * @return the resource type, or {@code null} if the activity does not need a resource.
+         */
+        String getResourceType(A activity);
+
+        /**
+         * Returns the resource types whose demand should be leveled.
+         *
+         * @return the resource types.
+         */
+        Set<String> getResourceTypes();
+
+    }
+
+    /**
+     * The result of leveling a project.
+     *
+     * @param <A> the activity type.
+     */
+    interface LevelingPlan<A> {
+
+        /**
+         * Returns the leveled start time of each activity.
+         *
+         * @return the start times by activity.
+         */
+        Map<A, Integer> getStarts();
+
+        /**
+         * Returns the time at which the project completes, which is the same with and without leveling.
+         *
+         * @return the completion time.
+         */
+        int getCompletionTime();
+
+        /**
+         * Returns the highest demand for each resource type when every activity starts at its earliest start.
+         *
+         * @return the peak demands by resource type.
+         */
+        Map<String, Integer> getInitialPeakDemands();
+
+        /**
+         * Returns the highest demand for each resource type with the leveled start times.
+         *
+         * @return the peak demands by resource type.
+         */
+        Map<String, Integer> getPeakDemands();
+
+    }
+
+}
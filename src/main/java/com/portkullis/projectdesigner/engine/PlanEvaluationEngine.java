@@ -0,0 +1,146 @@
+package com.portkullis.projectdesigner.engine;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+
+/**
+ * Engine for evaluating and comparing all the plans of a project.
+ *
+ * @param <A> the activity type.
+ * @param <R> the resource type.
+ */
+public interface PlanEvaluationEngine<A, R> {
+
+    /**
+     * Evaluates every plan of a project. In each plan, activities without resources are given one as by the assignment
+     * engine, every resource works through its activities in the order in which they start, and the times of the
+     * activities are then calculated from both their prerequisites and the order of the activities on each resource.
+     * The project itself is not changed, and must not be changed during the evaluation.
+     *
+     * @param project the project.
+     * @return the evaluation of each plan, by plan name.
+     */
+    Map<String, PlanEvaluation<A, R>> evaluatePlans(ProjectData<A, R> project);
+
+    /**
+     * Interface to project data required by the plan evaluation engine.
+     *
+     * @param <A> the activity type.
+     * @param <R> the resource type.
+     */
+    interface ProjectData<A, R> {
+
+        /**
+         * Returns the activities that are defined for the project.
+         *
+         * @return the activities that are defined for the project.
+         */
+        Collection<A> getActivities();
+
+        /**
+         * Returns the duration of the activity.
+         *
+         * @param activity the activity.
+         * @return the duration of the activity.
+         */
+        int getDuration(A activity);
+
+        /**
+         * Returns the prerequisites of the activity itself, without any dependencies that result from resource
+         * assignments.
+         *
+         * @param activity the activity.
+         * @return the prerequisites of the activity.
+         */
+        Collection<A> getDirectPrerequisites(A activity);
+
+        /**
+         * Returns the resource type that must perform the activity.
+         *
+         * @param activity the activity.
+         * @return the resource type.
+         */
+        String getResourceType(A activity);
+
+        /**
+         * Returns the names of the plans of the project.
+         *
+         * @return the plan names.
+         */
+        Set<String> getPlanNames();
+
+        /**
+         * Returns the resources that are assigned to the activity in a plan.
+         *
+         * @param plan     the plan name.
+         * @param activity the activity.
+         * @return the assigned resources, which are empty if the activity is unassigned.
+         */
+        Collection<R> getAssignedResources(String plan, A activity);
+
+        /**
+         * Returns the resources of the given type in a plan, sorted in order of preference.
+         *
+         * @param plan         the plan name.
+         * @param resourceType the resource type.
+         * @return the resources in order of preference, or {@code null} if the plan has no resources of the type.
+         */
+        SortedSet<R> getResourcesOfType(String plan, String resourceType);
+
+    }
+
+    /**
+     * The evaluation of one plan.
+     *
+     * @param <A> the activity type.
+     * @param <R> the resource type.
+     */
+    interface PlanEvaluation<A, R> {
+
+        /**
+         * Returns the resources of each activity, including the resources that were given to unassigned activities.
+         *
+         * @return the resources by activity.
+         */
+        Map<A, Collection<R>> getAssignments();
+
+        /**
+         * Returns the earliest start of each activity.
+         *
+         * @return the start times by activity.
+         */
+        Map<A, Integer> getStarts();
+
+        /**
+         * Returns the total float of each activity, measured against the completion time of the plan.
+         *
+         * @return the total floats by activity.
+         */
+        Map<A, Integer> getTotalFloats();
+
+        /**
+         * Returns the time at which the plan completes.
+         *
+         * @return the completion time.
+         */
+        int getCompletionTime();
+
+        /**
+         * Returns the number of activities without total float.
+         *
+         * @return the number of critical activities.
+         */
+        int getCriticalActivityCount();
+
+        /**
+         * Returns the average total float of the activities.
+         *
+         * @return the average total float, or zero if the project has no activities.
+         */
+        double getAverageTotalFloat();
+
+    }
+
+}
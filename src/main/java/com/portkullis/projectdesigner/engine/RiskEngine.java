@@ -0,0 +1,76 @@
+package com.portkullis.projectdesigner.engine;
+
+import com.portkullis.projectdesigner.model.DurationDistribution;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Engine for simulating the schedule risk of a project.
+ */
+public interface RiskEngine {
+
+    /**
+     * Simulates the schedule of a set of activities many times, drawing the duration of each activity from its
+     * distribution in every iteration. The simulation also covers every activity that is connected to the given
+     * activities through their prerequisites or successors. Activities without a distribution keep their fixed
+     * duration.
+     *
+     * @param activities    the activities to simulate.
+     * @param distributions the duration distributions of the activities whose duration is uncertain.
+     * @param iterations    the number of iterations to run.
+     * @param seed          the seed for the random durations. The same seed always gives the same results.
+     * @return the results of the simulation.
+     */
+    RiskProfile simulate(Collection<? extends CalculationEngine.ActivityData> activities,
+                         Map<? extends CalculationEngine.ActivityData, DurationDistribution> distributions,
+                         int iterations, long seed);
+
+    /**
+     * The results of a schedule risk simulation.
+     */
+    interface RiskProfile {
+
+        /**
+         * Returns the number of iterations that were simulated.
+         *
+         * @return the number of iterations.
+         */
+        int getIterations();
+
+        /**
+         * Returns the completion time that the project finishes within for the given fraction of iterations. For
+         * example, a fraction of 0.8 gives the P80 completion time.
+         *
+         * @param fraction the fraction of iterations, from 0 to 1.
+         * @return the completion time.
+         */
+        int getCompletionQuantile(double fraction);
+
+        /**
+         * Returns the average completion time of the project over all iterations.
+         *
+         * @return the mean completion time.
+         */
+        double getMeanCompletion();
+
+        /**
+         * Returns the simulated activities. The index of each activity in this list is its index in
+         * {@link #getCriticalityIndices()}.
+         *
+         * @return the simulated activities.
+         */
+        List<CalculationEngine.ActivityData> getActivities();
+
+        /**
+         * Returns the fraction of iterations in which each activity was critical; that is, in which it could not be
+         * delayed without delaying the completion of the project.
+         *
+         * @return the criticality index of each activity, by activity index.
+         */
+        double[] getCriticalityIndices();
+
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.portkullis.projectdesigner.engine.impl;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * The activities of a project in topological order, with their durations and prerequisites as index arrays, and the
+ * times of each activity when only its prerequisites are taken into account. A network is never modified once it is
+ * created, so it can be shared between threads, and the resources of any number of plans can be layered on top of it.
+ *
+ * @param <A> the activity type.
+ */
+final class ActivityNetwork<A> {
+
+    final TopologicalOrder<A> order;
+    final int[] durations;
+    final int[][] prerequisites;
+    final int[][] successors;
+    final int[] earliestStarts;
+    final int[] latestFinishes;
+    final int[] totalFloats;
+    final int completionTime;
+
+    /**
+     * Sorts the activities and calculates their times.
+     *
+     * @param activities    the activities.
+     * @param prerequisites function that returns the direct prerequisites of an activity. Prerequisites that are not
+     *                      among the activities are ignored.
+     * @param durations     function that returns the duration of an activity.
+     * @throws com.portkullis.projectdesigner.exception.CyclicDependencyException if the prerequisites contain a cycle.
+     */
+    ActivityNetwork(Collection<A> activities, Function<A, ? extends Collection<A>> prerequisites,
+                    ToIntFunction<A> durations) {
+        order = TopologicalOrder.of(activities, prerequisites);
+        int activityCount = order.size();
+
+        this.durations = new int[activityCount];
+        this.prerequisites = new int[activityCount][];
+        for (int i = 0; i < activityCount; i++) {
+            A activity = order.getActivities().get(i);
+            this.durations[i] = durations.applyAsInt(activity);
+            this.prerequisites[i] = prerequisites.apply(activity).stream()
+                    .mapToInt(order::indexOf)
+                    .filter(p -> p >= 0)
+                    .distinct()
+                    .toArray();
+        }
+        successors = invert(this.prerequisites);
+
+        // Calculate how long each activity can be delayed without delaying the completion of the project...
+        earliestStarts = new int[activityCount];
+        int completion = 0;
+        for (int i = 0; i < activityCount; i++) {
+            for (int p : this.prerequisites[i]) {
+                earliestStarts[i] = max(earliestStarts[i], earliestStarts[p] + this.durations[p]);
+            }
+            completion = max(completion, earliestStarts[i] + this.durations[i]);
+        }
+        completionTime = completion;
+        totalFloats = new int[activityCount];
+        latestFinishes = new int[activityCount];
+        for (int i = activityCount - 1; i >= 0; i--) {
+            latestFinishes[i] = completion;
+            for (int s : successors[i]) {
+                latestFinishes[i] = min(latestFinishes[i], latestFinishes[s] - this.durations[s]);
+            }
+            totalFloats[i] = latestFinishes[i] - this.durations[i] - earliestStarts[i];
+        }
+    }
+
+    /**
+     * Returns the activities in topological order.
+     *
+     * @return the activities.
+     */
+    List<A> getActivities() {
+        return order.getActivities();
+    }
+
+    /**
+     * Returns the number of activities in the network.
+     *
+     * @return the number of activities.
+     */
+    int size() {
+        return durations.length;
+    }
+
+    /**
+     * Returns the reverse of a set of edges between indices: for each index, the indices whose edges point to it.
+     *
+     * @param edges the target indices of the edges from each index.
+     * @return the source indices of the edges to each index.
+     */
+    static int[][] invert(int[][] edges) {
+        int[] counts = new int[edges.length];
+        for (int[] targets : edges) {
+            for (int target : targets) {
+                counts[target]++;
+            }
+        }
+        int[][] inverted = new int[edges.length][];
+        for (int i = 0; i < edges.length; i++) {
+            inverted[i] = new int[counts[i]];
+            counts[i] = 0;
+        }
+        for (int i = 0; i < edges.length; i++) {
+            for (int target : edges[i]) {
+                inverted[target][counts[target]++] = i;
+            }
+        }
+        return inverted;
+    }
+
+}
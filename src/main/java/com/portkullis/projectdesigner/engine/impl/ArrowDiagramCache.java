@@ -0,0 +1,206 @@
+package com.portkullis.projectdesigner.engine.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Bounded cache of simplified and labeled arrow diagrams, keyed by a fingerprint of the structure of the project they
+ * were created from. Each non-dummy edge of a cached diagram holds the position of its activity in the project, so
+ * the diagram can be reused for any project with the same structure. The least recently used diagram is evicted
+ * from memory once the cache is full. If a directory is given, diagrams are also written to disk and read back when
+ * they are not in memory.
+ * <p>
+ * Files start with a magic number and a format version, and every count and index in a file is checked when it is
+ * read. A file that can not be read, or that does not hold a valid diagram for the project, is treated as a miss and
+ * deleted, so a damaged or outdated cache never stops a diagram from being created.
+ */
+public final class ArrowDiagramCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ArrowDiagramCache.class);
+
+    private static final String FILE_SUFFIX = ".diagram";
+    private static final int FILE_MAGIC = 0x50444144;
+    private static final int FILE_VERSION = 1;
+
+    // The smallest number of bytes that a node or an edge takes up in a file...
+    private static final int MINIMUM_NODE_SIZE = Long.BYTES + 1 + Integer.BYTES;
+    private static final int EDGE_SIZE = 3 * Integer.BYTES;
+
+    private final Map<String, CompactGraph<Integer>> diagrams;
+    private final Path directory;
+
+    /**
+     * Constructs a cache that is held in memory only.
+     *
+     * @param maxEntries the maximum number of diagrams to keep in memory.
+     */
+    public ArrowDiagramCache(int maxEntries) {
+        this(maxEntries, null);
+    }
+
+    /**
+     * Constructs a cache that is held in memory and written to a directory.
+     *
+     * @param maxEntries the maximum number of diagrams to keep in memory.
+     * @param directory  the directory in which to store diagrams, or {@code null} to keep diagrams in memory only.
+     */
+    public ArrowDiagramCache(int maxEntries, Path directory) {
+        this.directory = directory;
+        this.diagrams = new LinkedHashMap<String, CompactGraph<Integer>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompactGraph<Integer>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the diagram stored for a fingerprint.
+     *
+     * @param fingerprint   the fingerprint of the project structure.
+     * @param activityCount the number of activities in the project. A diagram read from disk is only returned if each
+     *                      of its non-dummy edges holds a different activity position below this count, and every
+     *                      position is used.
+     * @return the diagram, or {@code null} if there is no diagram for the fingerprint.
+     */
+    synchronized CompactGraph<Integer> get(String fingerprint, int activityCount) {
+        CompactGraph<Integer> diagram = diagrams.get(fingerprint);
+        if (diagram == null && directory != null) {
+            diagram = read(directory.resolve(fingerprint + FILE_SUFFIX), activityCount);
+            if (diagram != null) {
+                diagrams.put(fingerprint, diagram);
+            }
+        }
+        return diagram;
+    }
+
+    /**
+     * Stores the diagram for a fingerprint.
+     *
+     * @param fingerprint the fingerprint of the project structure.
+     * @param diagram     the simplified and labeled diagram.
+     */
+    synchronized void put(String fingerprint, CompactGraph<Integer> diagram) {
+        diagrams.put(fingerprint, diagram);
+        if (directory != null) {
+            write(directory.resolve(fingerprint + FILE_SUFFIX), diagram);
+        }
+    }
+
+    private static CompactGraph<Integer> read(Path file, int activityCount) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            long fileSize = Files.size(file);
+            check(in.readInt() == FILE_MAGIC, "not an arrow diagram");
+            check(in.readInt() == FILE_VERSION, "unsupported format version");
+
+            // Check counts against the size of the file before allocating anything...
+            int nodeCount = in.readInt();
+            check(nodeCount >= 0 && nodeCount <= fileSize / MINIMUM_NODE_SIZE, "invalid node count");
+            Node[] nodes = new Node[nodeCount];
+            for (int node = 0; node < nodes.length; node++) {
+                long id = in.readLong();
+                nodes[node] = new Node(id, in.readBoolean() ? in.readUTF() : null);
+            }
+
+            int[] outOffsets = new int[nodes.length + 1];
+            for (int node = 0; node <= nodes.length; node++) {
+                outOffsets[node] = in.readInt();
+                check(node == 0 ? outOffsets[node] == 0 : outOffsets[node] >= outOffsets[node - 1],
+                        "invalid edge offsets");
+            }
+
+            int edgeCount = in.readInt();
+            check(edgeCount == outOffsets[nodes.length] && edgeCount <= fileSize / EDGE_SIZE, "invalid edge count");
+            int[] edgeStarts = new int[edgeCount];
+            int[] edgeEnds = new int[edgeCount];
+            Object[] edgeData = new Object[edgeCount];
+            BitSet activities = new BitSet(activityCount);
+            int start = 0;
+            for (int edge = 0; edge < edgeCount; edge++) {
+                while (outOffsets[start + 1] <= edge) {
+                    start++;
+                }
+                edgeStarts[edge] = in.readInt();
+                edgeEnds[edge] = in.readInt();
+                check(edgeStarts[edge] == start, "edge out of order");
+                check(edgeEnds[edge] > start && edgeEnds[edge] < nodes.length, "invalid edge end");
+
+                int activity = in.readInt();
+                check(activity >= -1 && activity < activityCount, "invalid activity position");
+                if (activity >= 0) {
+                    check(!activities.get(activity), "duplicate activity position");
+                    activities.set(activity);
+                }
+                edgeData[edge] = activity < 0 ? null : activity;
+            }
+            check(activities.cardinality() == activityCount, "missing activity positions");
+            check(in.read() < 0, "unexpected data after the diagram");
+
+            return new CompactGraph<>(nodes, outOffsets, edgeStarts, edgeEnds, edgeData);
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Discarding unreadable cached arrow diagram: {}", file, e);
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException deleteException) {
+                LOG.warn("Failed to delete cached arrow diagram: {}", file, deleteException);
+            }
+            return null;
+        }
+    }
+
+    private static void check(boolean condition, String problem) throws IOException {
+        if (!condition) {
+            throw new IOException("Invalid cached arrow diagram: " + problem);
+        }
+    }
+
+    private static void write(Path file, CompactGraph<Integer> diagram) {
+        try {
+            Files.createDirectories(file.getParent());
+
+            // Write to a temporary file first so that a reader never sees a partially written diagram...
+            Path temporaryFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FILE_VERSION);
+                out.writeInt(diagram.getNodeCount());
+                for (int node = 0; node < diagram.getNodeCount(); node++) {
+                    Node diagramNode = diagram.getNode(node);
+                    out.writeLong(diagramNode.getId());
+                    out.writeBoolean(diagramNode.getLabel() != null);
+                    if (diagramNode.getLabel() != null) {
+                        out.writeUTF(diagramNode.getLabel());
+                    }
+                }
+
+                for (int node = 0; node <= diagram.getNodeCount(); node++) {
+                    out.writeInt(diagram.getOutEdgeOffset(node));
+                }
+
+                out.writeInt(diagram.getEdgeCount());
+                for (int edge = 0; edge < diagram.getEdgeCount(); edge++) {
+                    out.writeInt(diagram.getEdgeStart(edge));
+                    out.writeInt(diagram.getEdgeEnd(edge));
+                    out.writeInt(diagram.isDummy(edge) ? -1 : diagram.getEdgeData(edge));
+                }
+            }
+            Files.move(temporaryFile, file, REPLACE_EXISTING);
+        } catch (IOException e) {
+            LOG.warn("Failed to write cached arrow diagram: {}", file, e);
+        }
+    }
+
+}
@@ -2,58 +2,241 @@ package com.portkullis.projectdesigner.engine.impl;
 
 import com.portkullis.projectdesigner.engine.AssignmentEngine;
 import com.portkullis.projectdesigner.exception.ProjectDesignerRuntimeException;
-import com.portkullis.projectdesigner.model.Span;
-import com.portkullis.projectdesigner.model.SpanSet;
 
-import java.util.Collection;
-import java.util.Optional;
-import java.util.SortedSet;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
 
+import static java.lang.Math.max;
 import static java.util.Comparator.comparingInt;
 
+/**
+ * Assignment engine that uses a serial schedule generation scheme. The activities are sorted by their prerequisites
+ * once; an activity becomes eligible as soon as its last prerequisite is scheduled, and eligible activities wait in a
+ * priority queue ordered by earliest start and then by a {@link PriorityRule}. The occupied spans of each resource are
+ * kept in an index, so an activity can also be placed in a gap that an earlier assignment left on a resource, and
+ * scheduling an activity only updates the earliest starts of its successors and the index, and never recalculates the
+ * project.
+ * <p>
+ * Total floats are calculated once from the prerequisites alone, before any resources are assigned. Progress is
+ * reported to an optional {@link AssignmentListener}.
+ * <p>
+ * In portfolio mode, the project is read once into a snapshot that all passes share, and one pass for each rule of the
+ * portfolio runs in parallel, recording its assignments instead of making them. Only the assignments of the pass with
+ * the earliest completion are then made in the project.
+ */
 public class AssignmentEngineImpl<A, R> implements AssignmentEngine<A, R> {
 
+    /**
+     * Rules for choosing between eligible activities that can start at the same time.
+     */
+    public enum PriorityRule {
+
+        /**
+         * Prefers the activity with the least total float.
+         */
+        MINIMUM_FLOAT,
+
+        /**
+         * Prefers the activity with the earliest latest finish.
+         */
+        LATEST_FINISH,
+
+        /**
+         * Prefers the activity with the most direct successors.
+         */
+        MOST_SUCCESSORS,
+
+        /**
+         * Prefers the activity with the longest duration.
+         */
+        LONGEST_DURATION,
+
+        /**
+         * Chooses at random, with an activity that has less total float being more likely to be chosen. Each use of
+         * this rule in a portfolio makes different choices.
+         */
+        RANDOMISED_FLOAT
+
+    }
+
+    private final AssignmentListener<A, R> listener;
+    private final ForkJoinPool portfolioPool;
+    private final List<PriorityRule> portfolio;
+
+    /**
+     * Constructs an engine that does not trace its assignments.
+     */
+    public AssignmentEngineImpl() {
+        this(new AssignmentListener<A, R>() {
+        });
+    }
+
+    /**
+     * Constructs an engine that reports its assignments to a listener.
+     *
+     * @param listener the listener for assignment trace events.
+     */
+    public AssignmentEngineImpl(AssignmentListener<A, R> listener) {
+        this.listener = listener;
+        this.portfolioPool = null;
+        this.portfolio = Collections.singletonList(PriorityRule.MINIMUM_FLOAT);
+    }
+
+    /**
+     * Constructs an engine that runs each of the deterministic priority rules, and the given number of randomised
+     * restarts, in parallel.
+     *
+     * @param portfolioPool      the pool on which to run the passes.
+     * @param randomisedRestarts the number of passes that use {@link PriorityRule#RANDOMISED_FLOAT}.
+     */
+    public AssignmentEngineImpl(ForkJoinPool portfolioPool, int randomisedRestarts) {
+        this(portfolioPool, getDefaultPortfolio(randomisedRestarts));
+    }
+
+    /**
+     * Constructs an engine that runs a pass for each of the given priority rules in parallel. Portfolio passes are not
+     * traced.
+     *
+     * @param portfolioPool the pool on which to run the passes.
+     * @param portfolio     the priority rules, in order of preference when passes complete at the same time.
+     */
+    public AssignmentEngineImpl(ForkJoinPool portfolioPool, List<PriorityRule> portfolio) {
+        if (portfolio.isEmpty()) {
+            throw new ProjectDesignerRuntimeException("A portfolio must contain at least one priority rule.");
+        }
+        this.listener = new AssignmentListener<A, R>() {
+        };
+        this.portfolioPool = portfolioPool;
+        this.portfolio = new ArrayList<>(portfolio);
+    }
+
+    private static List<PriorityRule> getDefaultPortfolio(int randomisedRestarts) {
+        List<PriorityRule> portfolio = new ArrayList<>(Arrays.asList(PriorityRule.MINIMUM_FLOAT,
+                PriorityRule.LATEST_FINISH, PriorityRule.MOST_SUCCESSORS, PriorityRule.LONGEST_DURATION));
+        portfolio.addAll(Collections.nCopies(randomisedRestarts, PriorityRule.RANDOMISED_FLOAT));
+        return portfolio;
+    }
+
     @Override
     public void assignResources(ProjectData<A, R> project) {
-        Collection<A> unassignedActivities = project.getUnassignedActivities();
-        int lastUnassignedActivityCount = 0;
-
-        while (!unassignedActivities.isEmpty() && unassignedActivities.size() != lastUnassignedActivityCount) {
-            lastUnassignedActivityCount = unassignedActivities.size();
-
-            unassignedActivities.stream()
-                    .filter(a -> project.getResourceType(a) != null)
-                    .min(comparingInt(project::getEarliestStart).thenComparingInt(project::getTotalFloat))
-                    .ifPresent(activity -> {
-                        SortedSet<R> candidateResources = project.getResourcesOfType(project.getResourceType(activity));
-                        Span<A> activitySpan = new Span<>(project.getEarliestStart(activity), project.getEarliestFinish(activity), activity);
-                        System.out.println("Activity Span: " + activitySpan);
-                        Optional<R> firstAvailableResource = candidateResources.stream()
-                                .filter(r -> {
-                                    SpanSet<A> resourceOccupiedSpans = project.getResourceOccupiedSpans(r);
-                                    System.out.println("    " + r + " occupied spans: " + resourceOccupiedSpans);
-                                    return resourceOccupiedSpans.intersect(activitySpan).isEmpty();
-                                })
-                                .findFirst();
-
-//                        if (!firstAvailableResource.isPresent()) {
-//                            firstAvailableResource = candidateResources.stream()
-//                                    .sorted(comparingInt(r -> {
-//                                        SpanSet<A> spans = project.getResourceOccupiedSpans(r);
-//                                        Span<A> span = spans.getSpans().get(spans.getSpans().size() - 1);
-//                                        return span.getEnd();
-//                                    }))
-//                                    .findFirst();
-//                        }
-
-                        firstAvailableResource.ifPresent(r -> {
-                            System.out.println("Assigning " + r + " to " + activity);
-                            project.assignActivityToResource(activity, r);
-                        });
-                    });
+        Snapshot<A, R> snapshot = new Snapshot<>(project);
+
+        Pass<A, R> best;
+        if (portfolioPool == null) {
+            best = schedule(snapshot, snapshot.getPriorities(portfolio.get(0), 0), listener);
+        } else {
+            List<ForkJoinTask<Pass<A, R>>> passes = new ArrayList<>(portfolio.size());
+            for (int p = 0; p < portfolio.size(); p++) {
+                int[] priorities = snapshot.getPriorities(portfolio.get(p), p);
+                passes.add(portfolioPool.submit(() -> schedule(snapshot, priorities, listener)));
+            }
+            best = passes.get(0).join();
+            for (ForkJoinTask<Pass<A, R>> pass : passes.subList(1, passes.size())) {
+                Pass<A, R> candidate = pass.join();
+                if (candidate.completionTime < best.completionTime) {
+                    best = candidate;
+                }
+            }
+        }
+
+        for (int a = 0; a < best.assignedActivities.size(); a++) {
+            project.assignActivityToResource(best.assignedActivities.get(a), best.assignedResources.get(a));
+        }
+    }
+
+    /**
+     * Schedules every activity of a snapshot, choosing between activities that can start at the same time by the
+     * given priorities, and records the resources that it assigns.
+     */
+    static <A, R> Pass<A, R> schedule(Snapshot<A, R> snapshot, int[] priorities,
+                                              AssignmentListener<A, R> listener) {
+        int activityCount = snapshot.activities.size();
+        int[] earliestStarts = new int[activityCount];
+        int[] remainingPrerequisites = new int[activityCount];
+        PriorityQueue<Integer> eligibleActivities = new PriorityQueue<>(comparingInt((Integer i) -> earliestStarts[i])
+                .thenComparingInt(i -> priorities[i])
+                .thenComparingInt(i -> i));
+        for (int i = 0; i < activityCount; i++) {
+            remainingPrerequisites[i] = snapshot.prerequisites[i].length;
+            if (remainingPrerequisites[i] == 0) {
+                eligibleActivities.add(i);
+            }
+        }
+
+        Pass<A, R> pass = new Pass<>(activityCount);
+        ResourceOccupancy<R> occupancy = new ResourceOccupancy<>();
+        while (!eligibleActivities.isEmpty()) {
+            int i = eligibleActivities.poll();
+            A activity = snapshot.activities.get(i);
+            int duration = snapshot.durations[i];
+
+            // Resources only ever become more occupied, so an activity that has to wait for one can simply be queued
+            // again at the time it could actually start...
+            int start = getResourceStart(snapshot, i, earliestStarts[i], occupancy);
+            if (start > earliestStarts[i]) {
+                listener.activityPostponed(activity, earliestStarts[i], start);
+                earliestStarts[i] = start;
+                eligibleActivities.add(i);
+                continue;
+            }
+
+            Collection<R> assignedResources = snapshot.assignedResources.get(i);
+            if (!assignedResources.isEmpty()) {
+                assignedResources.forEach(r -> occupancy.occupy(r, start, start + duration));
+            } else {
+                occupancy.findFirstFree(snapshot.candidateResources.get(i), start, start + duration).ifPresent(r -> {
+                    pass.assignedActivities.add(activity);
+                    pass.assignedResources.add(r);
+                    occupancy.occupy(r, start, start + duration);
+                    listener.resourceAssigned(activity, r, start, start + duration);
+                });
+            }
+            int finish = start + duration;
+            listener.activityScheduled(activity, start, finish);
+            pass.starts[i] = start;
+            pass.completionTime = max(pass.completionTime, finish);
+
+            for (int s : snapshot.successors[i]) {
+                earliestStarts[s] = max(earliestStarts[s], finish);
+                if (--remainingPrerequisites[s] == 0) {
+                    eligibleActivities.add(s);
+                }
+            }
+        }
+        return pass;
+    }
 
-            unassignedActivities = project.getUnassignedActivities();
+    /**
+     * Returns the earliest time at or after the given time at which the resources of an activity are free for its
+     * whole duration.
+     */
+    private static <R> int getResourceStart(Snapshot<?, R> snapshot, int activity, int earliestStart,
+                                            ResourceOccupancy<R> occupancy) {
+        int duration = snapshot.durations[activity];
+        Collection<R> assignedResources = snapshot.assignedResources.get(activity);
+        if (assignedResources.isEmpty()) {
+            Collection<R> candidateResources = snapshot.candidateResources.get(activity);
+            return candidateResources.isEmpty()
+                    ? earliestStart
+                    : occupancy.findEarliestStart(candidateResources, earliestStart, duration);
         }
+
+        // Every assigned resource must be free at the same time, so move the start until they all agree...
+        int start = earliestStart;
+        boolean moved = true;
+        while (moved) {
+            moved = false;
+            for (R resource : assignedResources) {
+                int resourceStart = occupancy.findEarliestStart(resource, start, duration);
+                if (resourceStart > start) {
+                    start = resourceStart;
+                    moved = true;
+                }
+            }
+        }
+        return start;
     }
 
     @Override
@@ -68,4 +251,110 @@ public class AssignmentEngineImpl<A, R> implements AssignmentEngine<A, R> {
         project.assignActivityToResource(activity, resource);
     }
 
+    /**
+     * Everything that a pass reads from the project: a network of the activities, with the resources of one plan
+     * layered on top. A snapshot is never modified once it is created, so any number of passes can share it.
+     */
+    static final class Snapshot<A, R> {
+
+        final List<A> activities;
+        final int[] durations;
+        final int[][] prerequisites;
+        final int[][] successors;
+        final List<Collection<R>> assignedResources;
+        final List<Collection<R>> candidateResources;
+        private final int[] totalFloats;
+        private final int[] latestFinishes;
+
+        Snapshot(ProjectData<A, R> project) {
+            this(new ActivityNetwork<>(project.getActivities(), project::getDirectPrerequisites, project::getDuration),
+                    project::getAssignedResources,
+                    activity -> {
+                        String resourceType = project.getResourceType(activity);
+                        return resourceType == null ? null : project.getResourcesOfType(resourceType);
+                    });
+        }
+
+        /**
+         * Layers the resources of a plan on top of a network.
+         *
+         * @param network            the network of activities.
+         * @param assignedResources  function that returns the resources that are assigned to an activity.
+         * @param candidateResources function that returns the resources that may be assigned to an activity, in order
+         *                           of preference, or {@code null} if there are none.
+         */
+        Snapshot(ActivityNetwork<A> network, Function<A, ? extends Collection<R>> assignedResources,
+                 Function<A, ? extends Collection<R>> candidateResources) {
+            activities = network.getActivities();
+            durations = network.durations;
+            prerequisites = network.prerequisites;
+            successors = network.successors;
+            totalFloats = network.totalFloats;
+            latestFinishes = network.latestFinishes;
+
+            this.assignedResources = new ArrayList<>(activities.size());
+            this.candidateResources = new ArrayList<>(activities.size());
+            for (A activity : activities) {
+                Collection<R> candidates = candidateResources.apply(activity);
+                this.assignedResources.add(new ArrayList<>(assignedResources.apply(activity)));
+                this.candidateResources.add(candidates == null ? Collections.emptyList() : new ArrayList<>(candidates));
+            }
+        }
+
+        /**
+         * Returns the priority of each activity under a rule, where a lower value is preferred.
+         *
+         * @param rule the priority rule.
+         * @param seed the seed for randomised rules.
+         * @return the priorities.
+         */
+        int[] getPriorities(PriorityRule rule, long seed) {
+            int[] priorities = new int[activities.size()];
+            SplittableRandom random = new SplittableRandom(seed);
+            for (int i = 0; i < priorities.length; i++) {
+                switch (rule) {
+                    case MINIMUM_FLOAT:
+                        priorities[i] = totalFloats[i];
+                        break;
+                    case LATEST_FINISH:
+                        priorities[i] = latestFinishes[i];
+                        break;
+                    case MOST_SUCCESSORS:
+                        priorities[i] = -successors[i].length;
+                        break;
+                    case LONGEST_DURATION:
+                        priorities[i] = -durations[i];
+                        break;
+                    case RANDOMISED_FLOAT:
+                        // The activity with the least of these exponentially distributed priorities is chosen with a
+                        // probability in inverse proportion to its total float plus one...
+                        double priority = -Math.log(1.0 - random.nextDouble()) * (totalFloats[i] + 1) * 1024;
+                        priorities[i] = (int) Math.min(priority, Integer.MAX_VALUE);
+                        break;
+                    default:
+                        throw new ProjectDesignerRuntimeException("Unsupported priority rule: " + rule);
+                }
+            }
+            return priorities;
+        }
+
+    }
+
+    /**
+     * The result of scheduling a snapshot: the assignments that were made, in the order in which they were made, the
+     * start time of each activity of the snapshot, and the completion time of the schedule.
+     */
+    static final class Pass<A, R> {
+
+        final List<A> assignedActivities = new ArrayList<>();
+        final List<R> assignedResources = new ArrayList<>();
+        final int[] starts;
+        int completionTime;
+
+        private Pass(int activityCount) {
+            starts = new int[activityCount];
+        }
+
+    }
+
 }
@@ -2,37 +2,146 @@ package com.portkullis.projectdesigner.engine.impl;
 
 import com.portkullis.projectdesigner.engine.CalculationEngine;
 
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * Calculation engine implementation. The first time an activity is passed to one of the methods for a single activity,
+ * the network of activities connected to it is validated and sorted into a {@link TopologicalOrder}, and the start and
+ * end times of every activity in the network are calculated in one forward and one backward pass. The schedule is
+ * kept for every activity in the network, so every later call for any of them is a lookup. When the engine is notified
+ * that the duration or prerequisites of an activity have changed, the kept schedule is updated in place, or dropped
+ * and calculated again on the next call if the change joined networks.
+ * <p>
+ * Schedules are kept in a concurrent map, and each schedule is locked while it is read or updated, so an engine can be
+ * shared between threads. Schedules are kept for as long as the engine, so an engine should not outlive the projects
+ * it is used for. Schedules returned by {@link #calculateSchedule(Collection)} belong to the caller and are not kept.
+ */
 public class CalculationEngineImpl implements CalculationEngine {
 
+    private final ForkJoinPool schedulingPool;
+
+    private final ConcurrentMap<ActivityData, CriticalPathSchedule> schedules = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs an engine that calculates schedules on the calling thread.
+     */
+    public CalculationEngineImpl() {
+        this(null);
+    }
+
+    /**
+     * Constructs an engine that calculates the activities in each dependency level of a new schedule in parallel.
+     * Updates after a change to an activity are still calculated on the calling thread.
+     *
+     * @param schedulingPool the pool on which to calculate schedules.
+     */
+    public CalculationEngineImpl(ForkJoinPool schedulingPool) {
+        this.schedulingPool = schedulingPool;
+    }
+
     @Override
     public int getEarliestStartTime(ActivityData activity) {
-        return activity.getPrerequisites().stream()
-                .mapToInt(this::getEarliestEndTime)
-                .max()
-                .orElse(0);
+        return getTime(activity, Schedule::getEarliestStarts);
     }
 
     @Override
     public int getEarliestEndTime(ActivityData activity) {
-        return getEarliestStartTime(activity) + activity.getDuration();
+        return getTime(activity, Schedule::getEarliestEnds);
     }
 
     @Override
     public int getLatestStartTime(ActivityData activity) {
-        return getLatestEndTime(activity) - activity.getDuration();
+        return getTime(activity, Schedule::getLatestStarts);
     }
 
     @Override
     public int getLatestEndTime(ActivityData activity) {
-        return activity.getSuccessors().stream()
-                .mapToInt(this::getLatestStartTime)
-                .min()
-                .orElse(getEarliestEndTime(activity));
+        return getTime(activity, Schedule::getLatestEnds);
     }
 
     @Override
     public int getTotalFloat(ActivityData activity) {
-        return getLatestStartTime(activity) - getEarliestStartTime(activity);
+        return getTime(activity, Schedule::getTotalFloats);
+    }
+
+    @Override
+    public Schedule calculateSchedule(Collection<? extends ActivityData> activities) {
+        return new CriticalPathSchedule(getNetwork(activities), schedulingPool);
+    }
+
+    @Override
+    public void durationChanged(ActivityData activity) {
+        CriticalPathSchedule schedule = schedules.get(activity);
+        if (schedule != null) {
+            schedule.durationChanged(activity);
+        }
+    }
+
+    @Override
+    public void prerequisitesChanged(ActivityData activity) {
+        CriticalPathSchedule schedule = schedules.get(activity);
+        if (schedule == null || !schedule.prerequisitesChanged(activity)) {
+            // The change joined networks or broke the order of the network, so calculate them again when next needed...
+            if (schedule != null) {
+                removeSchedule(schedule);
+            }
+            activity.getPrerequisites().stream()
+                    .map(schedules::get)
+                    .filter(Objects::nonNull)
+                    .forEach(this::removeSchedule);
+        }
+    }
+
+    private int getTime(ActivityData activity, Function<Schedule, int[]> times) {
+        CriticalPathSchedule schedule = getSchedule(activity);
+        synchronized (schedule) {
+            return times.apply(schedule)[schedule.indexOf(activity)];
+        }
+    }
+
+    private CriticalPathSchedule getSchedule(ActivityData activity) {
+        CriticalPathSchedule schedule = schedules.get(activity);
+        if (schedule == null) {
+            schedule = new CriticalPathSchedule(getNetwork(Collections.singleton(activity)), schedulingPool);
+            for (ActivityData a : schedule.getActivities()) {
+                schedules.put(a, schedule);
+            }
+        }
+        return schedule;
+    }
+
+    private void removeSchedule(CriticalPathSchedule schedule) {
+        schedule.getActivities().forEach(a -> schedules.remove(a, schedule));
+    }
+
+    /**
+     * Finds every activity that is connected to the given activities through prerequisites or successors.
+     *
+     * @param activities the activities from which to start.
+     * @return the given activities and all the activities connected to them.
+     */
+    static Set<ActivityData> getNetwork(Collection<? extends ActivityData> activities) {
+        Set<ActivityData> network = new LinkedHashSet<>(activities);
+        Deque<ActivityData> activitiesToVisit = new ArrayDeque<>(network);
+        while (!activitiesToVisit.isEmpty()) {
+            ActivityData next = activitiesToVisit.poll();
+            for (ActivityData neighbour : getNeighbours(next)) {
+                if (network.add(neighbour)) {
+                    activitiesToVisit.add(neighbour);
+                }
+            }
+        }
+        return network;
+    }
+
+    private static List<ActivityData> getNeighbours(ActivityData activity) {
+        List<ActivityData> neighbours = new ArrayList<>(activity.getPrerequisites());
+        neighbours.addAll(activity.getSuccessors());
+        return neighbours;
     }
 
 }
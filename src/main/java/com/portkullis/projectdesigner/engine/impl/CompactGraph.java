@@ -0,0 +1,269 @@
+package com.portkullis.projectdesigner.engine.impl;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static java.util.Comparator.comparingInt;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * An immutable, index based form of a {@link Graph} that stores edges in compressed sparse row form. Nodes are
+ * numbered in topological order, so a node's index is always lower than the index of any node that can be reached
+ * from it. The out-edges of node {@code n} are the edge indices from {@code getOutEdgeOffset(n)} (inclusive) to
+ * {@code getOutEdgeOffset(n + 1)} (exclusive); the in-edges of node {@code n} are found the same way through
+ * {@link #getInEdgeOffset(int)} and {@link #getInEdge(int)}.
+ *
+ * @param <T> the type of activity that is represented by each non-dummy edge in the graph.
+ */
+public final class CompactGraph<T> {
+
+    private final Node[] nodes;
+
+    private final int[] outOffsets;
+    private final int[] edgeStarts;
+    private final int[] edgeEnds;
+    private final Object[] edgeData;
+
+    private final int[] inOffsets;
+    private final int[] inEdges;
+
+    CompactGraph(Node[] nodes, int[] outOffsets, int[] edgeStarts, int[] edgeEnds, Object[] edgeData) {
+        this.nodes = nodes;
+        this.outOffsets = outOffsets;
+        this.edgeStarts = edgeStarts;
+        this.edgeEnds = edgeEnds;
+        this.edgeData = edgeData;
+
+        inOffsets = new int[nodes.length + 1];
+        for (int end : edgeEnds) {
+            inOffsets[end + 1]++;
+        }
+        for (int i = 0; i < nodes.length; i++) {
+            inOffsets[i + 1] += inOffsets[i];
+        }
+
+        inEdges = new int[edgeEnds.length];
+        int[] nextInEdge = new int[nodes.length];
+        System.arraycopy(inOffsets, 0, nextInEdge, 0, nodes.length);
+        for (int edge = 0; edge < edgeEnds.length; edge++) {
+            inEdges[nextInEdge[edgeEnds[edge]]++] = edge;
+        }
+    }
+
+    private CompactGraph(CompactGraph<?> source, Object[] edgeData) {
+        this.nodes = source.nodes;
+        this.outOffsets = source.outOffsets;
+        this.edgeStarts = source.edgeStarts;
+        this.edgeEnds = source.edgeEnds;
+        this.edgeData = edgeData;
+        this.inOffsets = source.inOffsets;
+        this.inEdges = source.inEdges;
+    }
+
+    /**
+     * Creates the compact form of a graph.
+     *
+     * @param graph the graph to convert.
+     * @param <T>   the activity type.
+     * @return the compact form of the graph.
+     * @throws com.portkullis.projectdesigner.exception.ProjectDesignerRuntimeException if the graph contains a cycle.
+     */
+    public static <T> CompactGraph<T> of(Graph<T> graph) {
+        List<Node> order = graph.getTopologicalOrder();
+
+        Map<Node, Integer> nodeIndices = new HashMap<>();
+        for (int i = 0; i < order.size(); i++) {
+            nodeIndices.put(order.get(i), i);
+        }
+
+        int edgeCount = graph.getEdges().size();
+        int[] outOffsets = new int[order.size() + 1];
+        int[] edgeStarts = new int[edgeCount];
+        int[] edgeEnds = new int[edgeCount];
+        Object[] edgeData = new Object[edgeCount];
+
+        int edge = 0;
+        for (int node = 0; node < order.size(); node++) {
+            outOffsets[node] = edge;
+            List<Edge<T>> outEdges = graph.getOutEdges(order.get(node)).stream()
+                    .sorted(comparingInt(e -> nodeIndices.get(e.getEnd())))
+                    .collect(toList());
+            for (Edge<T> e : outEdges) {
+                edgeStarts[edge] = node;
+                edgeEnds[edge] = nodeIndices.get(e.getEnd());
+                edgeData[edge] = e.getData().orElse(null);
+                edge++;
+            }
+        }
+        outOffsets[order.size()] = edge;
+
+        return new CompactGraph<>(order.toArray(new Node[0]), outOffsets, edgeStarts, edgeEnds, edgeData);
+    }
+
+    /**
+     * Creates a new {@link Graph} with the same nodes and edges as this graph.
+     *
+     * @return the expanded form of this graph.
+     */
+    public Graph<T> toGraph() {
+        Graph<T> graph = new Graph<>();
+        for (Node node : nodes) {
+            graph.getNodes().add(node);
+        }
+        for (int edge = 0; edge < edgeStarts.length; edge++) {
+            graph.getEdges().add(getEdge(edge));
+        }
+        return graph;
+    }
+
+    /**
+     * Creates a graph with the same nodes and edges as this graph, but with different activity data on each non-dummy
+     * edge. The new graph shares the node and edge arrays of this graph.
+     *
+     * @param mapper function that maps the activity data of this graph to the activity data of the new graph.
+     * @param <U>    the activity type of the new graph.
+     * @return the new graph.
+     */
+    public <U> CompactGraph<U> mapEdgeData(Function<? super T, ? extends U> mapper) {
+        Object[] mappedEdgeData = new Object[edgeData.length];
+        for (int edge = 0; edge < edgeData.length; edge++) {
+            if (!isDummy(edge)) {
+                mappedEdgeData[edge] = mapper.apply(getEdgeData(edge));
+            }
+        }
+        return new CompactGraph<>(this, mappedEdgeData);
+    }
+
+    /**
+     * Returns the number of nodes in the graph.
+     *
+     * @return the number of nodes.
+     */
+    public int getNodeCount() {
+        return nodes.length;
+    }
+
+    /**
+     * Returns the number of edges in the graph.
+     *
+     * @return the number of edges.
+     */
+    public int getEdgeCount() {
+        return edgeStarts.length;
+    }
+
+    /**
+     * Returns the node with the given index.
+     *
+     * @param node the node index.
+     * @return the node.
+     */
+    public Node getNode(int node) {
+        return nodes[node];
+    }
+
+    /**
+     * Returns the index of the first out-edge of the given node. Passing the node count returns the total edge count.
+     *
+     * @param node the node index.
+     * @return the index of the first edge leaving the node.
+     */
+    public int getOutEdgeOffset(int node) {
+        return outOffsets[node];
+    }
+
+    /**
+     * Returns the position of the first in-edge of the given node for use with {@link #getInEdge(int)}. Passing the
+     * node count returns the total edge count.
+     *
+     * @param node the node index.
+     * @return the position of the first edge entering the node.
+     */
+    public int getInEdgeOffset(int node) {
+        return inOffsets[node];
+    }
+
+    /**
+     * Returns the edge index stored at the given in-edge position.
+     *
+     * @param position the in-edge position.
+     * @return the edge index.
+     */
+    public int getInEdge(int position) {
+        return inEdges[position];
+    }
+
+    /**
+     * Returns the index of the starting node of an edge.
+     *
+     * @param edge the edge index.
+     * @return the starting node index.
+     */
+    public int getEdgeStart(int edge) {
+        return edgeStarts[edge];
+    }
+
+    /**
+     * Returns the index of the ending node of an edge.
+     *
+     * @param edge the edge index.
+     * @return the ending node index.
+     */
+    public int getEdgeEnd(int edge) {
+        return edgeEnds[edge];
+    }
+
+    /**
+     * Returns the activity data of an edge.
+     *
+     * @param edge the edge index.
+     * @return the activity data, or {@code null} if the edge is a dummy.
+     */
+    @SuppressWarnings("unchecked")
+    public T getEdgeData(int edge) {
+        return (T) edgeData[edge];
+    }
+
+    /**
+     * Returns {@code true} if the edge does not represent an activity.
+     *
+     * @param edge the edge index.
+     * @return {@code true} if the edge is a dummy; {@code false} otherwise.
+     */
+    public boolean isDummy(int edge) {
+        return edgeData[edge] == null;
+    }
+
+    /**
+     * Returns the edge with the given index.
+     *
+     * @param edge the edge index.
+     * @return the edge.
+     */
+    public Edge<T> getEdge(int edge) {
+        return new Edge<>(nodes[edgeStarts[edge]], nodes[edgeEnds[edge]], getEdgeData(edge));
+    }
+
+    /**
+     * Calculates, for each node, the set of node indices that can be reached from that node by following one or more
+     * edges.
+     *
+     * @return the reachable node indices for each node, indexed by node.
+     */
+    public BitSet[] getReachableNodes() {
+        BitSet[] reachable = new BitSet[nodes.length];
+        for (int node = nodes.length - 1; node >= 0; node--) {
+            BitSet nodeReachable = new BitSet(nodes.length);
+            for (int edge = outOffsets[node]; edge < outOffsets[node + 1]; edge++) {
+                nodeReachable.set(edgeEnds[edge]);
+                nodeReachable.or(reachable[edgeEnds[edge]]);
+            }
+            reachable[node] = nodeReachable;
+        }
+        return reachable;
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.portkullis.projectdesigner.engine.impl;
+
+import com.portkullis.projectdesigner.exception.ProjectDesignerRuntimeException;
+
+import java.util.Arrays;
+
+/**
+ * Streaming quantile sketch for project completion times. Completion times are whole duration units, so the sketch
+ * simply counts how often each time occurs; its size depends on the longest completion time, not on the number of
+ * recorded values, and the quantiles it returns are exact.
+ */
+final class CompletionHistogram {
+
+    private long[] counts = new long[64];
+    private long count = 0;
+    private long sum = 0;
+
+    /**
+     * Records a completion time.
+     *
+     * @param completion the completion time, which must not be negative.
+     */
+    void record(int completion) {
+        if (completion >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(completion + 1, counts.length * 2));
+        }
+        counts[completion]++;
+        count++;
+        sum += completion;
+    }
+
+    /**
+     * Adds all the completion times recorded by another histogram to this histogram.
+     *
+     * @param other the other histogram.
+     */
+    void merge(CompletionHistogram other) {
+        if (other.counts.length > counts.length) {
+            counts = Arrays.copyOf(counts, other.counts.length);
+        }
+        for (int completion = 0; completion < other.counts.length; completion++) {
+            counts[completion] += other.counts[completion];
+        }
+        count += other.count;
+        sum += other.sum;
+    }
+
+    /**
+     * Returns the smallest recorded completion time that is at least as large as the given fraction of all recorded
+     * completion times.
+     *
+     * @param fraction the fraction, from 0 to 1.
+     * @return the completion time.
+     */
+    int getQuantile(double fraction) {
+        if (!(fraction >= 0 && fraction <= 1)) {
+            throw new ProjectDesignerRuntimeException("Invalid quantile: " + fraction);
+        }
+        if (count == 0) {
+            throw new ProjectDesignerRuntimeException("No completion times have been recorded.");
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long cumulativeCount = 0;
+        for (int completion = 0; completion < counts.length; completion++) {
+            cumulativeCount += counts[completion];
+            if (cumulativeCount >= rank) {
+                return completion;
+            }
+        }
+        return counts.length - 1;
+    }
+
+    /**
+     * Returns the mean of the recorded completion times.
+     *
+     * @return the mean completion time.
+     */
+    double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+}
@@ -0,0 +1,258 @@
+package com.portkullis.projectdesigner.engine.impl;
+
+import com.portkullis.projectdesigner.engine.CalculationEngine.ActivityData;
+import com.portkullis.projectdesigner.engine.CrashingEngine;
+import com.portkullis.projectdesigner.model.CrashOption;
+
+import java.util.*;
+
+/**
+ * Implementation of the crashing engine. Each step crashes the activities in a minimum cut of the critical activities
+ * by one duration unit: every critical path runs from an activity that starts at time zero to an activity that ends
+ * at the completion time, and the cut is the cheapest set of activities that can still be crashed and that contains
+ * at least one activity of every critical path. After each step, only the times of the crashed activities and the
+ * activities that depend on them are updated, so the critical activities are found again without recalculating the
+ * whole schedule.
+ * <p>
+ * Crashed activities are never lengthened again in a later step, so the total cost can be higher than the cheapest
+ * possible cost when undoing an earlier crash would have made a later step cheaper.
+ */
+public class CrashingEngineImpl implements CrashingEngine {
+
+    private static final int SOURCE = 0;
+    private static final int SINK = 1;
+
+    @Override
+    public CrashPlan crash(Collection<? extends ActivityData> activities,
+                           Map<? extends ActivityData, CrashOption> crashOptions,
+                           int targetDuration) {
+        CriticalPathSchedule schedule = new CriticalPathSchedule(CalculationEngineImpl.getNetwork(activities), null);
+        List<ActivityData> scheduledActivities = schedule.getActivities();
+        int activityCount = scheduledActivities.size();
+
+        int[] durations = new int[activityCount];
+        int[] crashDurations = new int[activityCount];
+        double[] costsPerDay = new double[activityCount];
+        for (int i = 0; i < activityCount; i++) {
+            ActivityData activity = scheduledActivities.get(i);
+            CrashOption crashOption = crashOptions.get(activity);
+            durations[i] = activity.getDuration();
+            crashDurations[i] = crashOption == null ? durations[i] : crashOption.getCrashDuration();
+            costsPerDay[i] = crashOption == null ? 0 : crashOption.getCostPerDay();
+        }
+
+        int completionTime = getCompletionTime(schedule);
+        double totalCost = 0;
+        SortedMap<Integer, Double> crashCurve = new TreeMap<>();
+        crashCurve.put(completionTime, totalCost);
+
+        while (completionTime > targetDuration) {
+            CriticalNetwork criticalNetwork = new CriticalNetwork(schedule, completionTime);
+            int[] crashedActivities = criticalNetwork.findCheapestCut(durations, crashDurations, costsPerDay);
+            if (crashedActivities == null) {
+                break;
+            }
+
+            // While every critical path runs through exactly one crashed activity, the critical paths stay the same
+            // until either a crashed activity reaches its crash duration or another path catches up, so the same cut
+            // remains the cheapest for all those days...
+            int days = 1;
+            if (criticalNetwork.crossesEveryPathOnce(crashedActivities)) {
+                days = completionTime - targetDuration;
+                for (int i : crashedActivities) {
+                    days = Math.min(days, durations[i] - crashDurations[i]);
+                }
+            }
+            double costPerDay = 0;
+            for (int i : crashedActivities) {
+                durations[i] -= days;
+                schedule.setDuration(i, durations[i]);
+                costPerDay += costsPerDay[i];
+            }
+
+            int crashedCompletionTime = getCompletionTime(schedule);
+            if (days > 1 && crashedCompletionTime > completionTime - days) {
+                // Another path caught up part way, so undo the days after that...
+                int usefulDays = completionTime - crashedCompletionTime;
+                for (int i : crashedActivities) {
+                    durations[i] += days - usefulDays;
+                    schedule.setDuration(i, durations[i]);
+                }
+                days = usefulDays;
+            }
+
+            for (int day = 1; day < days; day++) {
+                crashCurve.put(completionTime - day, totalCost + day * costPerDay);
+            }
+            totalCost += days * costPerDay;
+            completionTime = crashedCompletionTime;
+            crashCurve.put(completionTime, totalCost);
+        }
+
+        return new MinimumCostCrashPlan(scheduledActivities, durations, completionTime, totalCost, crashCurve);
+    }
+
+    private static int getCompletionTime(CriticalPathSchedule schedule) {
+        int completionTime = 0;
+        for (int earliestEnd : schedule.getEarliestEnds()) {
+            completionTime = Math.max(completionTime, earliestEnd);
+        }
+        return completionTime;
+    }
+
+    /**
+     * The critical activities of a schedule, and the prerequisites through which they are critical. They are found by
+     * walking back from the activities that end last through the prerequisites that end exactly in time.
+     */
+    private static final class CriticalNetwork {
+
+        private final CriticalPathSchedule schedule;
+        private final int completionTime;
+        private final int[] activities;
+        private final int[] nodes;
+
+        private CriticalNetwork(CriticalPathSchedule schedule, int completionTime) {
+            this.schedule = schedule;
+            this.completionTime = completionTime;
+
+            int[] earliestStarts = schedule.getEarliestStarts();
+            int[] earliestEnds = schedule.getEarliestEnds();
+            nodes = new int[earliestEnds.length];
+            Arrays.fill(nodes, -1);
+            int[] criticalActivities = new int[earliestEnds.length];
+            int criticalCount = 0;
+            for (int i = 0; i < earliestEnds.length; i++) {
+                if (earliestEnds[i] == completionTime) {
+                    nodes[i] = 0;
+                    criticalActivities[criticalCount++] = i;
+                }
+            }
+            for (int c = 0; c < criticalCount; c++) {
+                int i = criticalActivities[c];
+                for (int p : schedule.getPrerequisiteIndices(i)) {
+                    if (nodes[p] < 0 && earliestEnds[p] == earliestStarts[i]) {
+                        nodes[p] = 0;
+                        criticalActivities[criticalCount++] = p;
+                    }
+                }
+            }
+
+            // Keep the activities in topological order, and give each of them an input node and an output node in the
+            // cut network...
+            activities = Arrays.copyOf(criticalActivities, criticalCount);
+            Arrays.sort(activities);
+            for (int c = 0; c < activities.length; c++) {
+                nodes[activities[c]] = 2 + 2 * c;
+            }
+        }
+
+        private boolean isCriticalPrerequisite(int prerequisite, int activity) {
+            return nodes[prerequisite] >= 0
+                    && schedule.getEarliestEnds()[prerequisite] == schedule.getEarliestStarts()[activity];
+        }
+
+        /**
+         * Finds the cheapest set of activities whose crashing by one duration unit shortens every critical path.
+         *
+         * @return the activity indices, or {@code null} if some critical path can not be shortened any further.
+         */
+        private int[] findCheapestCut(int[] durations, int[] crashDurations, double[] costsPerDay) {
+            MinimumCut cut = new MinimumCut(2 + 2 * activities.length, SOURCE, SINK);
+            for (int i : activities) {
+                int input = nodes[i];
+                int output = input + 1;
+                double cost = durations[i] > crashDurations[i] ? costsPerDay[i] : Double.POSITIVE_INFINITY;
+                cut.addArc(input, output, cost, 0);
+
+                if (schedule.getEarliestStarts()[i] == 0) {
+                    cut.addArc(SOURCE, input, Double.POSITIVE_INFINITY, 0);
+                }
+                if (schedule.getEarliestEnds()[i] == completionTime) {
+                    cut.addArc(output, SINK, Double.POSITIVE_INFINITY, 0);
+                }
+                for (int p : schedule.getPrerequisiteIndices(i)) {
+                    if (isCriticalPrerequisite(p, i)) {
+                        cut.addArc(nodes[p] + 1, input, Double.POSITIVE_INFINITY, 0);
+                    }
+                }
+            }
+
+            boolean[] sourceSide = cut.findSourceSide();
+            if (sourceSide == null) {
+                return null;
+            }
+            return Arrays.stream(activities)
+                    .filter(i -> sourceSide[nodes[i]] && !sourceSide[nodes[i] + 1])
+                    .toArray();
+        }
+
+        /**
+         * Checks that no critical path runs through more than one of the given activities.
+         */
+        private boolean crossesEveryPathOnce(int[] cutActivities) {
+            int[] crossings = new int[schedule.getActivities().size()];
+            for (int i : cutActivities) {
+                crossings[i] = 1;
+            }
+            for (int i : activities) {
+                int prerequisiteCrossings = 0;
+                for (int p : schedule.getPrerequisiteIndices(i)) {
+                    if (isCriticalPrerequisite(p, i)) {
+                        prerequisiteCrossings = Math.max(prerequisiteCrossings, crossings[p]);
+                    }
+                }
+                crossings[i] += prerequisiteCrossings;
+                if (crossings[i] > 1) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
+    private static final class MinimumCostCrashPlan implements CrashPlan {
+
+        private final List<ActivityData> activities;
+        private final int[] durations;
+        private final int completionTime;
+        private final double totalCost;
+        private final SortedMap<Integer, Double> crashCurve;
+
+        private MinimumCostCrashPlan(List<ActivityData> activities, int[] durations, int completionTime,
+                                     double totalCost, SortedMap<Integer, Double> crashCurve) {
+            this.activities = activities;
+            this.durations = durations;
+            this.completionTime = completionTime;
+            this.totalCost = totalCost;
+            this.crashCurve = Collections.unmodifiableSortedMap(crashCurve);
+        }
+
+        @Override
+        public List<ActivityData> getActivities() {
+            return activities;
+        }
+
+        @Override
+        public int[] getDurations() {
+            return durations;
+        }
+
+        @Override
+        public int getCompletionTime() {
+            return completionTime;
+        }
+
+        @Override
+        public double getTotalCost() {
+            return totalCost;
+        }
+
+        @Override
+        public SortedMap<Integer, Double> getCrashCurve() {
+            return crashCurve;
+        }
+
+    }
+
+}
@@ -0,0 +1,474 @@
+package com.portkullis.projectdesigner.engine.impl;
+
+import com.portkullis.projectdesigner.engine.CalculationEngine;
+import com.portkullis.projectdesigner.engine.CalculationEngine.ActivityData;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * Schedule of a network of activities, calculated with one forward pass and one backward pass over the activities in
+ * topological order. An activity without successors has a latest end time equal to its earliest end time.
+ * <p>
+ * The schedule can be updated in place when the duration or prerequisites of an activity change. Earliest times are
+ * then recalculated only for the changed activity and the successors whose times actually change, and latest times
+ * only for the prerequisites whose times actually change.
+ * <p>
+ * If a pool is given, the schedule is first calculated level by level. Every activity is placed one level after the
+ * last of its prerequisites, and all the activities in a level are calculated in parallel; the same levels are then
+ * used in reverse for the latest times. The results are identical to the sequential calculation.
+ */
+final class CriticalPathSchedule implements CalculationEngine.Schedule {
+
+    private static final int[] NO_ACTIVITIES = new int[0];
+
+    private static final int SEQUENTIAL_THRESHOLD = 1024;
+
+    private final TopologicalOrder<ActivityData> order;
+
+    private final int[] durations;
+    private final int[][] prerequisites;
+    private final int[][] successors;
+    private final int[][] prerequisiteOf;
+    private final int[][] successorOf;
+
+    private final int[] earliestStarts;
+    private final int[] earliestEnds;
+    private final int[] latestStarts;
+    private final int[] latestEnds;
+    private final int[] totalFloats;
+    private final int[] freeFloats;
+    private int[] criticalPath = null;
+
+    /**
+     * Calculates the schedule.
+     *
+     * @param network the activities to schedule. The prerequisites and successors of every activity must also be part
+     *                of the network.
+     * @param pool    the pool on which to calculate the levels of the network in parallel, or {@code null} to calculate
+     *                the schedule on the calling thread.
+     * @throws com.portkullis.projectdesigner.exception.CyclicDependencyException if the network contains a cycle.
+     */
+    CriticalPathSchedule(Collection<ActivityData> network, ForkJoinPool pool) {
+        // Sort by prerequisites and successors, so that both passes only ever look at calculated activities...
+        Map<ActivityData, List<ActivityData>> predecessors = new HashMap<>();
+        for (ActivityData activity : network) {
+            predecessors.computeIfAbsent(activity, a -> new ArrayList<>()).addAll(activity.getPrerequisites());
+            for (ActivityData successor : activity.getSuccessors()) {
+                predecessors.computeIfAbsent(successor, a -> new ArrayList<>()).add(activity);
+            }
+        }
+        order = TopologicalOrder.of(network, predecessors::get);
+
+        int activityCount = order.size();
+        durations = new int[activityCount];
+        prerequisites = new int[activityCount][];
+        successors = new int[activityCount][];
+        for (int i = 0; i < activityCount; i++) {
+            ActivityData activity = order.getActivities().get(i);
+            durations[i] = activity.getDuration();
+            prerequisites[i] = indicesOf(activity.getPrerequisites());
+            successors[i] = indicesOf(activity.getSuccessors());
+        }
+        prerequisiteOf = invert(prerequisites);
+        successorOf = invert(successors);
+
+        earliestStarts = new int[activityCount];
+        earliestEnds = new int[activityCount];
+        latestStarts = new int[activityCount];
+        latestEnds = new int[activityCount];
+        totalFloats = new int[activityCount];
+        freeFloats = new int[activityCount];
+
+        if (pool != null) {
+            calculateInParallel(pool);
+        } else {
+            BitSet allActivities = new BitSet(activityCount);
+            allActivities.set(0, activityCount);
+            update((BitSet) allActivities.clone(), (BitSet) allActivities.clone(), allActivities);
+        }
+    }
+
+    @Override
+    public synchronized void durationChanged(ActivityData activity) {
+        int i = order.indexOf(activity);
+        if (i >= 0) {
+            setDuration(i, activity.getDuration());
+        }
+    }
+
+    /**
+     * Changes the duration used for an activity in the schedule, without changing the activity itself, and updates the
+     * schedule.
+     *
+     * @param activity the index of the activity.
+     * @param duration the new duration.
+     */
+    void setDuration(int activity, int duration) {
+        durations[activity] = duration;
+
+        BitSet activities = new BitSet(order.size());
+        activities.set(activity);
+        update((BitSet) activities.clone(), (BitSet) activities.clone(), activities);
+    }
+
+    @Override
+    public synchronized boolean prerequisitesChanged(ActivityData activity) {
+        int i = order.indexOf(activity);
+        if (i < 0) {
+            return false;
+        }
+        int[] newPrerequisites = indicesOf(activity.getPrerequisites());
+
+        // Check that the current order is still a topological order before changing anything...
+        if (Arrays.stream(newPrerequisites).anyMatch(p -> p < 0 || p >= i)) {
+            return false;
+        }
+
+        Set<Integer> changedPrerequisites = new TreeSet<>();
+        Arrays.stream(prerequisites[i]).forEach(changedPrerequisites::add);
+        Arrays.stream(newPrerequisites).forEach(changedPrerequisites::add);
+
+        Map<Integer, int[]> newSuccessors = new HashMap<>();
+        for (int p : changedPrerequisites) {
+            newSuccessors.put(p, indicesOf(order.getActivities().get(p).getSuccessors()));
+        }
+        for (Map.Entry<Integer, int[]> e : newSuccessors.entrySet()) {
+            if (Arrays.stream(e.getValue()).anyMatch(s -> s <= e.getKey())) {
+                return false;
+            }
+        }
+
+        replaceEdges(i, newPrerequisites, prerequisites, prerequisiteOf);
+        newSuccessors.forEach((p, s) -> replaceEdges(p, s, successors, successorOf));
+
+        BitSet earliestActivities = new BitSet(order.size());
+        earliestActivities.set(i);
+        BitSet latestActivities = new BitSet(order.size());
+        changedPrerequisites.forEach(latestActivities::set);
+        BitSet floatActivities = (BitSet) latestActivities.clone();
+        floatActivities.set(i);
+        update(earliestActivities, latestActivities, floatActivities);
+        return true;
+    }
+
+    private int[] indicesOf(Collection<ActivityData> activities) {
+        return activities.stream().mapToInt(order::indexOf).toArray();
+    }
+
+    private static int[][] invert(int[][] edges) {
+        List<List<Integer>> inverted = new ArrayList<>();
+        for (int i = 0; i < edges.length; i++) {
+            inverted.add(new ArrayList<>());
+        }
+        for (int i = 0; i < edges.length; i++) {
+            for (int j : edges[i]) {
+                inverted.get(j).add(i);
+            }
+        }
+        return inverted.stream()
+                .map(l -> l.stream().mapToInt(Integer::intValue).toArray())
+                .toArray(int[][]::new);
+    }
+
+    private static void replaceEdges(int activity, int[] newTargets, int[][] edges, int[][] invertedEdges) {
+        for (int target : edges[activity]) {
+            invertedEdges[target] = Arrays.stream(invertedEdges[target]).filter(a -> a != activity).toArray();
+        }
+        edges[activity] = newTargets.length == 0 ? NO_ACTIVITIES : newTargets;
+        for (int target : newTargets) {
+            int[] sources = Arrays.copyOf(invertedEdges[target], invertedEdges[target].length + 1);
+            sources[sources.length - 1] = activity;
+            invertedEdges[target] = sources;
+        }
+    }
+
+    /**
+     * Recalculates the given activities, and every activity whose times change as a result. Because activities are
+     * indexed in topological order, the earliest times can be recalculated in increasing index order and the latest
+     * times in decreasing index order, with each activity being visited at most once.
+     */
+    private void update(BitSet earliestActivities, BitSet latestActivities, BitSet floatActivities) {
+        for (int i = earliestActivities.nextSetBit(0); i >= 0; i = earliestActivities.nextSetBit(i + 1)) {
+            int earliestStart = calculateEarliestStart(i);
+            int earliestEnd = earliestStart + durations[i];
+
+            if (earliestStart != earliestStarts[i]) {
+                earliestStarts[i] = earliestStart;
+                floatActivities.set(i);
+                for (int p : successorOf[i]) {
+                    floatActivities.set(p);
+                }
+            }
+            if (earliestEnd != earliestEnds[i]) {
+                earliestEnds[i] = earliestEnd;
+                floatActivities.set(i);
+                for (int s : prerequisiteOf[i]) {
+                    earliestActivities.set(s);
+                }
+                if (successors[i].length == 0) {
+                    latestActivities.set(i);
+                }
+            }
+        }
+
+        for (int i = latestActivities.previousSetBit(order.size() - 1); i >= 0; i = latestActivities.previousSetBit(i - 1)) {
+            int latestEnd = calculateLatestEnd(i);
+            latestEnds[i] = latestEnd;
+
+            int latestStart = latestEnd - durations[i];
+            if (latestStart != latestStarts[i]) {
+                latestStarts[i] = latestStart;
+                floatActivities.set(i);
+                for (int p : successorOf[i]) {
+                    latestActivities.set(p);
+                }
+            }
+        }
+
+        for (int i = floatActivities.nextSetBit(0); i >= 0; i = floatActivities.nextSetBit(i + 1)) {
+            calculateFloats(i);
+        }
+
+        criticalPath = null;
+    }
+
+    private void calculateInParallel(ForkJoinPool pool) {
+        int[][] levels = getDependencyLevels();
+
+        for (int[] level : levels) {
+            runLevel(pool, level, i -> {
+                earliestStarts[i] = calculateEarliestStart(i);
+                earliestEnds[i] = earliestStarts[i] + durations[i];
+            });
+        }
+
+        for (int l = levels.length - 1; l >= 0; l--) {
+            runLevel(pool, levels[l], i -> {
+                latestEnds[i] = calculateLatestEnd(i);
+                latestStarts[i] = latestEnds[i] - durations[i];
+            });
+        }
+
+        int[] allActivities = new int[order.size()];
+        Arrays.setAll(allActivities, i -> i);
+        runLevel(pool, allActivities, this::calculateFloats);
+    }
+
+    /**
+     * Groups the activities into levels, so that every prerequisite of an activity is in an earlier level and every
+     * successor of an activity is in a later level.
+     */
+    private int[][] getDependencyLevels() {
+        int activityCount = order.size();
+        int[] activityLevels = new int[activityCount];
+        int levelCount = 0;
+        for (int i = 0; i < activityCount; i++) {
+            int level = 0;
+            for (int p : prerequisites[i]) {
+                level = max(level, activityLevels[p] + 1);
+            }
+            for (int p : successorOf[i]) {
+                level = max(level, activityLevels[p] + 1);
+            }
+            activityLevels[i] = level;
+            levelCount = max(levelCount, level + 1);
+        }
+
+        int[] levelSizes = new int[levelCount];
+        for (int level : activityLevels) {
+            levelSizes[level]++;
+        }
+        int[][] levels = new int[levelCount][];
+        for (int level = 0; level < levelCount; level++) {
+            levels[level] = new int[levelSizes[level]];
+            levelSizes[level] = 0;
+        }
+        for (int i = 0; i < activityCount; i++) {
+            int level = activityLevels[i];
+            levels[level][levelSizes[level]++] = i;
+        }
+        return levels;
+    }
+
+    private static void runLevel(ForkJoinPool pool, int[] level, IntConsumer calculation) {
+        if (level.length <= SEQUENTIAL_THRESHOLD) {
+            // Not worth handing small levels to the pool...
+            for (int i : level) {
+                calculation.accept(i);
+            }
+        } else {
+            pool.invoke(new LevelAction(level, 0, level.length, calculation));
+        }
+    }
+
+    private int calculateEarliestStart(int i) {
+        int earliestStart = 0;
+        for (int p : prerequisites[i]) {
+            earliestStart = max(earliestStart, earliestEnds[p]);
+        }
+        return earliestStart;
+    }
+
+    private int calculateLatestEnd(int i) {
+        if (successors[i].length == 0) {
+            return earliestEnds[i];
+        }
+        int latestEnd = Integer.MAX_VALUE;
+        for (int s : successors[i]) {
+            latestEnd = min(latestEnd, latestStarts[s]);
+        }
+        return latestEnd;
+    }
+
+    private void calculateFloats(int i) {
+        totalFloats[i] = latestStarts[i] - earliestStarts[i];
+
+        int freeFloat = 0;
+        if (successors[i].length > 0) {
+            int earliestSuccessorStart = Integer.MAX_VALUE;
+            for (int s : successors[i]) {
+                earliestSuccessorStart = min(earliestSuccessorStart, earliestStarts[s]);
+            }
+            freeFloat = earliestSuccessorStart - earliestEnds[i];
+        }
+        freeFloats[i] = freeFloat;
+    }
+
+    /**
+     * Returns the indices of the prerequisites of an activity.
+     *
+     * @param activity the activity index.
+     * @return the prerequisite indices, which are all lower than the activity index.
+     */
+    int[] getPrerequisiteIndices(int activity) {
+        return prerequisites[activity];
+    }
+
+    /**
+     * Returns the indices of the successors of an activity.
+     *
+     * @param activity the activity index.
+     * @return the successor indices, which are all higher than the activity index.
+     */
+    int[] getSuccessorIndices(int activity) {
+        return successors[activity];
+    }
+
+    @Override
+    public List<ActivityData> getActivities() {
+        return order.getActivities();
+    }
+
+    @Override
+    public int indexOf(ActivityData activity) {
+        return order.indexOf(activity);
+    }
+
+    @Override
+    public int[] getEarliestStarts() {
+        return earliestStarts;
+    }
+
+    @Override
+    public int[] getEarliestEnds() {
+        return earliestEnds;
+    }
+
+    @Override
+    public int[] getLatestStarts() {
+        return latestStarts;
+    }
+
+    @Override
+    public int[] getLatestEnds() {
+        return latestEnds;
+    }
+
+    @Override
+    public int[] getTotalFloats() {
+        return totalFloats;
+    }
+
+    @Override
+    public int[] getFreeFloats() {
+        return freeFloats;
+    }
+
+    @Override
+    public synchronized int[] getCriticalPath() {
+        if (criticalPath == null) {
+            criticalPath = findCriticalPath();
+        }
+        return criticalPath;
+    }
+
+    /**
+     * Walks back from the activity that ends last, through prerequisites that end exactly when the current activity
+     * can start, until reaching an activity without such a prerequisite.
+     */
+    private int[] findCriticalPath() {
+        if (order.size() == 0) {
+            return NO_ACTIVITIES;
+        }
+
+        int last = 0;
+        for (int i = 1; i < order.size(); i++) {
+            if (earliestEnds[i] > earliestEnds[last]) {
+                last = i;
+            }
+        }
+
+        Deque<Integer> path = new ArrayDeque<>();
+        int current = last;
+        while (current >= 0) {
+            path.push(current);
+            int next = -1;
+            for (int p : prerequisites[current]) {
+                if (earliestEnds[p] == earliestStarts[current] && (next < 0 || p < next)) {
+                    next = p;
+                }
+            }
+            current = next;
+        }
+
+        return path.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Calculates a range of the activities in a level, splitting the range in half until it is small enough.
+     */
+    private static final class LevelAction extends RecursiveAction {
+
+        private final int[] level;
+        private final int from;
+        private final int to;
+        private final IntConsumer calculation;
+
+        private LevelAction(int[] level, int from, int to, IntConsumer calculation) {
+            this.level = level;
+            this.from = from;
+            this.to = to;
+            this.calculation = calculation;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    calculation.accept(level[i]);
+                }
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new LevelAction(level, from, middle, calculation), new LevelAction(level, middle, to, calculation));
+            }
+        }
+
+    }
+
+}
@@ -2,58 +2,80 @@ package com.portkullis.projectdesigner.engine.impl;
 
 import com.portkullis.projectdesigner.engine.VisualizationEngine;
 
-import java.util.HashMap;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
 
 /**
  * Utility class for calculating float for edges on an arrow diagram.
  */
 class FloatCalculator {
 
-    private final Graph<VisualizationEngine.ActivityData> graph;
+    private final CompactGraph<VisualizationEngine.ActivityData> graph;
 
-    private final HashMap<Edge<VisualizationEngine.ActivityData>, Integer> floatCache = new HashMap<>();
-    private final HashMap<Node, Integer> earlyStartCache = new HashMap<>();
-    private final HashMap<Node, Integer> lateStartCache = new HashMap<>();
+    private final int[] earlyStarts;
+    private final int[] lateStarts;
 
     /**
      * Constructs the calculator.
      *
      * @param graph the activity graph.
      */
-    FloatCalculator(Graph<VisualizationEngine.ActivityData> graph) {
+    FloatCalculator(CompactGraph<VisualizationEngine.ActivityData> graph) {
         this.graph = graph;
+
+        int nodeCount = graph.getNodeCount();
+        earlyStarts = new int[nodeCount];
+        lateStarts = new int[nodeCount];
+
+        // Nodes are in topological order, so every prerequisite node has already been calculated...
+        for (int node = 0; node < nodeCount; node++) {
+            int earlyStart = 0;
+            for (int i = graph.getInEdgeOffset(node); i < graph.getInEdgeOffset(node + 1); i++) {
+                int edge = graph.getInEdge(i);
+                earlyStart = max(earlyStart, earlyStarts[graph.getEdgeStart(edge)] + getDuration(edge));
+            }
+            earlyStarts[node] = earlyStart;
+        }
+
+        for (int node = nodeCount - 1; node >= 0; node--) {
+            int lateStart = earlyStarts[node];
+            if (graph.getOutEdgeOffset(node) < graph.getOutEdgeOffset(node + 1)) {
+                lateStart = Integer.MAX_VALUE;
+                for (int edge = graph.getOutEdgeOffset(node); edge < graph.getOutEdgeOffset(node + 1); edge++) {
+                    lateStart = min(lateStart, lateStarts[graph.getEdgeEnd(edge)] - getDuration(edge));
+                }
+            }
+            lateStarts[node] = lateStart;
+        }
     }
 
     /**
      * Calculates the total float for the given edge.
      *
-     * @param edge the edge for which to calculate the total float.
+     * @param edge the index of the edge for which to calculate the total float.
      * @return the total float for the edge.
      */
-    int getTotalFloat(Edge<VisualizationEngine.ActivityData> edge) {
-        return floatCache.computeIfAbsent(edge, e -> {
-            int earlyStart = getEarlyStart(e.getStart());
-            int lateFinish = getLateStart(e.getEnd());
-            return lateFinish - (earlyStart + (e.getData().isPresent() ? e.getData().get().getEdgeProperties().getDuration() : 0));
-        });
+    int getTotalFloat(int edge) {
+        int earlyStart = earlyStarts[graph.getEdgeStart(edge)];
+        int lateFinish = lateStarts[graph.getEdgeEnd(edge)];
+        return lateFinish - (earlyStart + getDuration(edge));
     }
 
-    private int getEarlyStart(Node node) {
-        return earlyStartCache.computeIfAbsent(node, n -> graph.getEdges().stream()
-                .filter(e -> e.getEnd().equals(n))
-                .map(e -> getEarlyStart(e.getStart()) + (e.getData().isPresent() ? e.getData().get().getEdgeProperties().getDuration() : 0))
-                .max(Integer::compareTo)
-                .orElse(0)
-        );
+    /**
+     * Calculates the total float for every edge in the graph.
+     *
+     * @return the total float of each edge, indexed by edge.
+     */
+    int[] getTotalFloats() {
+        int[] totalFloats = new int[graph.getEdgeCount()];
+        for (int edge = 0; edge < totalFloats.length; edge++) {
+            totalFloats[edge] = getTotalFloat(edge);
+        }
+        return totalFloats;
     }
 
-    private int getLateStart(Node node) {
-        return lateStartCache.computeIfAbsent(node, n -> graph.getEdges().stream()
-                .filter(e -> e.getStart().equals(n))
-                .map(e -> getLateStart(e.getEnd()) - (e.getData().isPresent() ? e.getData().get().getEdgeProperties().getDuration() : 0))
-                .min(Integer::compareTo)
-                .orElse(getEarlyStart(node))
-        );
+    private int getDuration(int edge) {
+        return graph.isDummy(edge) ? 0 : graph.getEdgeData(edge).getEdgeProperties().getDuration();
     }
 
 }
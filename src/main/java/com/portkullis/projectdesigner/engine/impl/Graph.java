@@ -3,11 +3,14 @@ package com.portkullis.projectdesigner.engine.impl;
 import com.portkullis.projectdesigner.exception.ProjectDesignerRuntimeException;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.stream.Stream;
 
 import static java.util.Collections.disjoint;
-import static java.util.function.Function.identity;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.unmodifiableSet;
 import static java.util.stream.Collectors.*;
 
 /**
@@ -17,11 +20,23 @@ import static java.util.stream.Collectors.*;
  */
 public class Graph<T> {
 
-    private Set<Node> nodes;
-    private Set<Edge<T>> edges;
+    private final Set<Node> nodes = new HashSet<>();
+    private final Set<Edge<T>> edges = new EdgeSet();
+
+    private final Map<Node, Set<Edge<T>>> outEdges = new HashMap<>();
+    private final Map<Node, Set<Edge<T>>> inEdges = new HashMap<>();
+
+    private final Set<Node> pinnedNodes = new HashSet<>();
+
+    private final Map<Node, Node> mergedNodeParents = new HashMap<>();
+    private final List<Node> pendingMergedNodes = new ArrayList<>();
+
+    private final Map<T, Integer> activityIndices = new IdentityHashMap<>();
+    private final Map<Node, BitSet> prerequisiteCache = new HashMap<>();
 
     @Override
     public String toString() {
+        applyPendingMerges();
         return "Graph{" +
                 "nodes=" + nodes +
                 ", edges=" + edges +
@@ -33,12 +48,15 @@ public class Graph<T> {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Graph graph = (Graph) o;
+        applyPendingMerges();
+        graph.applyPendingMerges();
         return Objects.equals(nodes, graph.nodes) &&
                 Objects.equals(edges, graph.edges);
     }
 
     @Override
     public int hashCode() {
+        applyPendingMerges();
         return Objects.hash(nodes, edges);
     }
 
@@ -48,28 +66,75 @@ public class Graph<T> {
      * @return all the nodes in the graph.
      */
     public Set<Node> getNodes() {
-        if (nodes == null) {
-            nodes = new HashSet<>();
-        }
+        applyPendingMerges();
         return nodes;
     }
 
     /**
-     * Returns all of the edges in the graph.
+     * Returns all of the edges in the graph. Edges added to the returned set automatically add their start and end
+     * nodes to the graph.
      *
      * @return the edges in the graph.
      */
     public Set<Edge<T>> getEdges() {
-        if (edges == null) {
-            edges = new HashSet<>();
-        }
         return edges;
     }
 
+    /**
+     * Returns the edges that leave the given node.
+     *
+     * @param node the node.
+     * @return the edges that start at the node.
+     */
+    public Set<Edge<T>> getOutEdges(Node node) {
+        applyPendingMerges();
+        return unmodifiableSet(outEdges.getOrDefault(node, emptySet()));
+    }
+
+    /**
+     * Returns the edges that enter the given node.
+     *
+     * @param node the node.
+     * @return the edges that end at the node.
+     */
+    public Set<Edge<T>> getInEdges(Node node) {
+        applyPendingMerges();
+        return unmodifiableSet(inEdges.getOrDefault(node, emptySet()));
+    }
+
     private void fixNodes() {
-        nodes = edges.stream()
-                .flatMap(e -> Stream.of(e.getStart(), e.getEnd()))
-                .collect(Collectors.toSet());
+        applyPendingMerges();
+        nodes.addAll(outEdges.keySet());
+        nodes.addAll(inEdges.keySet());
+        nodes.removeIf(this::isIsolated);
+    }
+
+    private boolean isIsolated(Node node) {
+        return !outEdges.containsKey(node) && !inEdges.containsKey(node);
+    }
+
+    private void indexEdge(Edge<T> edge) {
+        outEdges.computeIfAbsent(edge.getStart(), n -> new HashSet<>()).add(edge);
+        inEdges.computeIfAbsent(edge.getEnd(), n -> new HashSet<>()).add(edge);
+        nodes.add(edge.getStart());
+        nodes.add(edge.getEnd());
+        invalidatePrerequisites(edge.getEnd());
+    }
+
+    private void unindexEdge(Edge<T> edge) {
+        removeFromIndex(outEdges, edge.getStart(), edge);
+        removeFromIndex(inEdges, edge.getEnd(), edge);
+        invalidatePrerequisites(edge.getEnd());
+    }
+
+    private void removeFromIndex(Map<Node, Set<Edge<T>>> index, Node node, Edge<T> edge) {
+        Set<Edge<T>> nodeEdges = index.get(node);
+        if (nodeEdges != null) {
+            nodeEdges.remove(edge);
+            if (nodeEdges.isEmpty()) {
+                index.remove(node);
+            }
+        }
     }
 
     /**
@@ -82,117 +147,334 @@ public class Graph<T> {
         findAndDeleteRedundantDummies();
         mergeNodesWithIdenticalPrerequisites();
 
-        Optional<Edge<T>> unnecessaryDummy;
+        boolean simplified;
         do {
-            simplifySimilarDummyNodes();
+            simplified = simplifySimilarDummyNodes();
+            simplified |= collapseUnnecessaryDummies();
+        } while (simplified);
+    }
 
-            unnecessaryDummy = getMergeCandidates().findFirst();
+    /**
+     * Simplifies the graph in the same way as {@link #simplifyDummies()}, but first splits the graph at its cut nodes
+     * (the nodes that every path from the start of the graph to the end passes through) and simplifies the regions
+     * between the cut nodes in parallel. Cut nodes are kept whenever nodes are merged, so the simplified regions can be
+     * joined back together at them. Graphs without a single start and a single end node are simplified sequentially.
+     *
+     * @param pool the pool on which to simplify the regions of the graph.
+     */
+    public void simplifyDummies(ForkJoinPool pool) {
+        fixNodes();
 
-            unnecessaryDummy.ifPresent(this::collapseEdge);
-        } while (unnecessaryDummy.isPresent());
-    }
+        List<Graph<T>> regions = getRegionsBetweenCutNodes();
+        if (regions.size() < 2) {
+            simplifyDummies();
+            return;
+        }
 
-    private Stream<Edge<T>> getMergeCandidates() {
-        return Stream.of(
-                getDummiesThatAreOnlyExitsFromNodes(),
-                getUnnecessaryDummies()
-        ).flatMap(identity());
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(regions.stream()
+                        .map(r -> adapt(() -> r.simplifyDummies()))
+                        .collect(toList()));
+            }
+        });
+
+        edges.clear();
+        nodes.clear();
+        regions.forEach(r -> edges.addAll(r.getEdges()));
     }
 
-    private void findAndDeleteRedundantDummies() {
-        List<Edge> dummies = edges.stream().filter(e -> !e.getData().isPresent()).collect(toList());
+    /**
+     * Splits the graph into the regions between consecutive cut nodes. Each region contains at least one activity and
+     * shares its first and last nodes, which are pinned, with the neighbouring regions.
+     *
+     * @return the regions of the graph; a graph that can not be split results in at most one region.
+     */
+    List<Graph<T>> getRegionsBetweenCutNodes() {
+        CompactGraph<T> compactGraph = CompactGraph.of(this);
+        int nodeCount = compactGraph.getNodeCount();
+        if (nodeCount < 2) {
+            return emptyList();
+        }
 
-        for (Edge dummy : dummies) {
-            if (countPaths(dummy.getStart(), dummy.getEnd()) > 1) {
-                edges.remove(dummy);
+        // Count the edges that jump over each node position; a node that no edge jumps over is on every path...
+        int[] spanningEdges = new int[nodeCount + 1];
+        int[] activitiesBefore = new int[nodeCount + 1];
+        for (int edge = 0; edge < compactGraph.getEdgeCount(); edge++) {
+            int start = compactGraph.getEdgeStart(edge);
+            int end = compactGraph.getEdgeEnd(edge);
+            if (end - start > 1) {
+                spanningEdges[start + 1]++;
+                spanningEdges[end]--;
+            }
+            if (!compactGraph.isDummy(edge)) {
+                activitiesBefore[start + 1]++;
             }
         }
 
-        fixNodes();
-    }
+        int startNodeCount = 0;
+        int endNodeCount = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            if (compactGraph.getInEdgeOffset(node) == compactGraph.getInEdgeOffset(node + 1)) {
+                startNodeCount++;
+            }
+            if (compactGraph.getOutEdgeOffset(node) == compactGraph.getOutEdgeOffset(node + 1)) {
+                endNodeCount++;
+            }
+        }
 
-    private int countPaths(Node start, Node end) {
-        return getAllDistinctPaths(start, end).size();
+        // ...but only split where the region since the last split contains an activity
+        List<Integer> boundaries = new ArrayList<>();
+        boundaries.add(0);
+        if (startNodeCount == 1 && endNodeCount == 1) {
+            int spanning = 0;
+            for (int node = 1; node < nodeCount; node++) {
+                spanning += spanningEdges[node];
+                activitiesBefore[node] += activitiesBefore[node - 1];
+                int lastBoundary = boundaries.get(boundaries.size() - 1);
+                if (spanning == 0 && activitiesBefore[node] > activitiesBefore[lastBoundary]) {
+                    boundaries.add(node);
+                }
+            }
+        }
+        if (boundaries.size() > 1) {
+            boundaries.set(boundaries.size() - 1, nodeCount - 1);
+        } else {
+            boundaries.add(nodeCount - 1);
+        }
+
+        List<Graph<T>> regions = new ArrayList<>();
+        for (int i = 0; i + 1 < boundaries.size(); i++) {
+            Graph<T> region = new Graph<>();
+            for (int node = boundaries.get(i); node < boundaries.get(i + 1); node++) {
+                for (int edge = compactGraph.getOutEdgeOffset(node); edge < compactGraph.getOutEdgeOffset(node + 1); edge++) {
+                    region.getEdges().add(compactGraph.getEdge(edge));
+                }
+            }
+            region.pinnedNodes.add(compactGraph.getNode(boundaries.get(i)));
+            region.pinnedNodes.add(compactGraph.getNode(boundaries.get(i + 1)));
+            regions.add(region);
+        }
+        return regions;
     }
 
     /**
-     * Returns a collection of all the distinct paths between the two nodes within this graph.
+     * Collapses unnecessary dummies, driven by a worklist of nodes whose exits need to be checked. Every node starts on
+     * the worklist, and after each collapse only the nodes with edges touching the merged node's neighbourhood are
+     * checked again, so the work done is proportional to the number of collapses rather than the size of the graph.
      *
-     * @param start the starting node.
-     * @param end   the ending node.
-     * @return a collection of distinct paths between the two nodes.
-     * @throws RuntimeException if either node does not exist in this graph.
+     * @return {@code true} if any dummies were collapsed; {@code false} otherwise.
      */
-    private Set<List<Edge<T>>> getAllDistinctPaths(Node start, Node end) {
-        return getAllDistinctPaths(new ArrayList<>(), start, end);
+    private boolean collapseUnnecessaryDummies() {
+        Deque<Node> pendingNodes = new ArrayDeque<>(getNodes());
+        Set<Node> queuedNodes = new HashSet<>(nodes);
+        boolean collapsed = false;
+
+        while (!pendingNodes.isEmpty()) {
+            Node node = pendingNodes.poll();
+            queuedNodes.remove(node);
+
+            Optional<Edge<T>> unnecessaryDummy = getOutEdges(node).stream()
+                    .filter(this::isUnnecessaryDummy)
+                    .findFirst();
+
+            if (unnecessaryDummy.isPresent()) {
+                Node target = collapseEdge(unnecessaryDummy.get());
+                collapsed = true;
+
+                getNodesWithEdgesTouchingNeighbourhood(target).stream()
+                        .filter(queuedNodes::add)
+                        .forEach(pendingNodes::add);
+            }
+        }
+
+        return collapsed;
     }
 
-    private Set<List<Edge<T>>> getAllDistinctPaths(List<Edge<T>> basePath, Node start, Node end) {
-        if (!nodes.contains(start)) {
-            throw new ProjectDesignerRuntimeException("Graph does not contain starting node: " + start);
-        }
-        if (!nodes.contains(end)) {
-            throw new ProjectDesignerRuntimeException("Graph does not contain ending node: " + end);
+    private Set<Node> getNodesWithEdgesTouchingNeighbourhood(Node node) {
+        Set<Node> neighbourhood = getNodesConnectedTo(node);
+        neighbourhood.add(node);
+
+        Set<Node> edgeStarts = new HashSet<>(neighbourhood);
+        neighbourhood.forEach(n -> getInEdges(n).forEach(e -> edgeStarts.add(e.getStart())));
+        return edgeStarts;
+    }
+
+    void findAndDeleteRedundantDummies() {
+        CompactGraph<T> compactGraph = CompactGraph.of(this);
+        BitSet[] reachable = compactGraph.getReachableNodes();
+
+        // A dummy is redundant if the end node can also be reached through any other edge leaving the start node...
+        List<Edge<T>> redundantDummies = new ArrayList<>();
+        for (int dummy = 0; dummy < compactGraph.getEdgeCount(); dummy++) {
+            if (compactGraph.isDummy(dummy)) {
+                int start = compactGraph.getEdgeStart(dummy);
+                int end = compactGraph.getEdgeEnd(dummy);
+                for (int edge = compactGraph.getOutEdgeOffset(start); edge < compactGraph.getOutEdgeOffset(start + 1); edge++) {
+                    if (edge != dummy && reachable[compactGraph.getEdgeEnd(edge)].get(end)) {
+                        redundantDummies.add(compactGraph.getEdge(dummy));
+                        break;
+                    }
+                }
+            }
         }
 
-        Set<List<Edge<T>>> results = new HashSet<>();
+        redundantDummies.forEach(edges::remove);
+
+        fixNodes();
+    }
 
-        if (!start.equals(end)) {
-            Set<Edge<T>> nextEdges = edges.stream()
-                    .filter(e -> e.getStart().equals(start))
-                    .collect(toSet());
+    /**
+     * Returns the nodes of this graph in topological order, so that every node appears before all the nodes that can
+     * be reached from it.
+     *
+     * @return the nodes of the graph in topological order.
+     * @throws ProjectDesignerRuntimeException if the graph contains a cycle.
+     */
+    List<Node> getTopologicalOrder() {
+        applyPendingMerges();
+        Map<Node, Integer> remainingInEdges = new HashMap<>();
+        Deque<Node> readyNodes = new ArrayDeque<>();
+        nodes.forEach(n -> {
+            int inEdgeCount = getInEdges(n).size();
+            if (inEdgeCount == 0) {
+                readyNodes.add(n);
+            } else {
+                remainingInEdges.put(n, inEdgeCount);
+            }
+        });
 
-            for (Edge<T> nextEdge : nextEdges) {
-                List<Edge<T>> newBasePath = new ArrayList<>(basePath);
-                newBasePath.add(nextEdge);
-                if (nextEdge.getEnd().equals(end)) {
-                    results.add(newBasePath);
-                } else {
-                    results.addAll(getAllDistinctPaths(newBasePath, nextEdge.getEnd(), end));
+        List<Node> order = new ArrayList<>(nodes.size());
+        while (!readyNodes.isEmpty()) {
+            Node node = readyNodes.poll();
+            order.add(node);
+            for (Edge<T> edge : getOutEdges(node)) {
+                if (remainingInEdges.merge(edge.getEnd(), -1, Integer::sum) == 0) {
+                    readyNodes.add(edge.getEnd());
                 }
             }
+        }
 
+        if (order.size() != nodes.size()) {
+            // Sort again through the general purpose order so that the failure names the nodes in the cycle...
+            TopologicalOrder.of(nodes, n -> getInEdges(n).stream().map(Edge::getStart).collect(toList()));
+            throw new ProjectDesignerRuntimeException("Graph contains a cycle.");
         }
 
-        return results;
+        return order;
     }
 
     private void mergeNodesWithIdenticalPrerequisites() {
-        Map<Node, Set<Edge<T>>> nodePrerequisites = nodes.stream()
-                .collect(toMap(identity(), this::getPrerequisiteActivities));
+        validateSingleStartNode();
 
-        List<Node> nodesToCompare = nodes.stream().sorted().collect(toList());
+        List<Node> sortedNodes = getNodes().stream().sorted().collect(toList());
 
-        while (nodesToCompare.size() > 1) {
-            Node compareNode = nodesToCompare.remove(0);
+        // Link each node to the next node, in ID order, that has an identical set of prerequisite activities...
+        Map<BitSet, Node> lastNodeWithPrerequisites = new HashMap<>();
+        Map<Node, Node> nextNodeWithSamePrerequisites = new HashMap<>();
+        for (Node node : sortedNodes) {
+            Node previousNode = lastNodeWithPrerequisites.put(getPrerequisiteActivities(node), node);
+            if (previousNode != null) {
+                nextNodeWithSamePrerequisites.put(previousNode, node);
+            }
+        }
 
-            for (Node otherNode : nodesToCompare) {
-                if (nodePrerequisites.get(compareNode).equals(nodePrerequisites.get(otherNode))) {
-                    mergeNodes(compareNode, otherNode);
-                }
+        // ...then merge each node into the next, which collapses every group into the node with the highest ID
+        for (Node node : sortedNodes) {
+            Node nextNode = nextNodeWithSamePrerequisites.get(node);
+            if (nextNode != null) {
+                mergeNodes(node, nextNode);
             }
         }
     }
 
-    void mergeNodes(Node node, Node target) {
-        List<Edge<T>> edgesToUpdate = edges.stream()
-                .filter(e -> e.getStart().equals(node) || e.getEnd().equals(node))
-                .collect(toList());
-        edges.removeAll(edgesToUpdate);
+    /**
+     * Merges one node, or the node it has already been merged into, into another. If only the node being merged is
+     * pinned, the target is merged into it instead. Merges are recorded in a disjoint set and only applied to the edges
+     * of the graph when the graph is next read, so a run of merges rewrites each affected edge just once.
+     *
+     * @param node   the node to merge.
+     * @param target the node into which to merge.
+     * @return the node that remains in the graph.
+     */
+    Node mergeNodes(Node node, Node target) {
+        Node nodeRoot = findMergedNode(node);
+        Node targetRoot = findMergedNode(target);
+
+        if (nodeRoot.equals(targetRoot)) {
+            return targetRoot;
+        }
+
+        if (pinnedNodes.contains(nodeRoot) && !pinnedNodes.contains(targetRoot)) {
+            Node swap = nodeRoot;
+            nodeRoot = targetRoot;
+            targetRoot = swap;
+        }
+
+        mergedNodeParents.put(nodeRoot, targetRoot);
+        pendingMergedNodes.add(nodeRoot);
+        return targetRoot;
+    }
+
+    private Node findMergedNode(Node node) {
+        Node root = node;
+        while (mergedNodeParents.containsKey(root)) {
+            root = mergedNodeParents.get(root);
+        }
+
+        // Compress the path so later lookups go straight to the root...
+        Node next = node;
+        while (!next.equals(root)) {
+            next = mergedNodeParents.put(next, root);
+        }
+
+        return root;
+    }
+
+    private void applyPendingMerges() {
+        if (pendingMergedNodes.isEmpty()) {
+            return;
+        }
+
+        // Later merges go first, so surviving edges are the same as if each merge had been applied immediately...
+        List<Node> mergedNodes = new ArrayList<>(pendingMergedNodes);
+        Collections.reverse(mergedNodes);
+        pendingMergedNodes.clear();
+
+        Set<Edge<T>> edgesToUpdate = new LinkedHashSet<>();
+        for (Node node : mergedNodes) {
+            edgesToUpdate.addAll(outEdges.getOrDefault(node, emptySet()));
+            edgesToUpdate.addAll(inEdges.getOrDefault(node, emptySet()));
+        }
+        edgesToUpdate.forEach(edges::remove);
 
         edgesToUpdate.forEach(edge -> {
-            Node start = edge.getStart().equals(node) ? target : edge.getStart();
-            Node end = edge.getEnd().equals(node) ? target : edge.getEnd();
+            Node start = findMergedNode(edge.getStart());
+            Node end = findMergedNode(edge.getEnd());
 
             if (!start.equals(end)) {
                 edges.add(new Edge<>(start, end, edge.getData().orElse(null)));
             }
         });
 
-        fixNodes();
+        for (Node node : mergedNodes) {
+            Node target = findMergedNode(node);
+            nodes.remove(node);
+            prerequisiteCache.remove(node);
+            if (isIsolated(target)) {
+                nodes.remove(target);
+            }
+        }
+
+        mergedNodeParents.clear();
     }
 
-    private Set<Edge<T>> getPrerequisiteActivities(Node end) {
+    private void validateSingleStartNode() {
+        if (nodes.isEmpty()) {
+            return;
+        }
+
         Set<Node> startNodes = getStartNodes();
 
         if (startNodes.isEmpty()) {
@@ -202,11 +484,66 @@ public class Graph<T> {
         if (startNodes.size() > 1) {
             throw new ProjectDesignerRuntimeException("Multiple start nodes found for graph.");
         }
+    }
 
-        return getAllDistinctPaths(startNodes.stream().findFirst().get(), end).stream() // NOSONAR - This is validated above
-                .flatMap(List::stream)
-                .filter(e -> e.getData().isPresent())
-                .collect(toSet());
+    /**
+     * Returns the activities that must be completed before the given node is reached, as a set of activity indices.
+     * Results are cached per node and invalidated for the downstream nodes of any edge that is added or removed. The
+     * returned set must not be modified.
+     *
+     * @param end the node for which to get the prerequisite activities.
+     * @return the indices of all the activities on any path leading to the node.
+     */
+    BitSet getPrerequisiteActivities(Node end) {
+        applyPendingMerges();
+        Set<Node> expanded = new HashSet<>();
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(end);
+
+        // Iterative post-order walk back through uncached prerequisites, so long chains can not overflow the stack...
+        while (!pending.isEmpty()) {
+            Node node = pending.peek();
+            if (prerequisiteCache.containsKey(node)) {
+                pending.pop();
+            } else if (expanded.add(node)) {
+                getInEdges(node).stream()
+                        .map(Edge::getStart)
+                        .filter(n -> !prerequisiteCache.containsKey(n))
+                        .forEach(n -> {
+                            if (expanded.contains(n)) {
+                                throw new ProjectDesignerRuntimeException("Graph contains a cycle through node: " + n);
+                            }
+                            pending.push(n);
+                        });
+            } else {
+                pending.pop();
+                BitSet prerequisites = new BitSet();
+                for (Edge<T> edge : getInEdges(node)) {
+                    prerequisites.or(prerequisiteCache.get(edge.getStart()));
+                    edge.getData().ifPresent(d -> prerequisites.set(getActivityIndex(d)));
+                }
+                prerequisiteCache.put(node, prerequisites);
+            }
+        }
+
+        return prerequisiteCache.get(end);
+    }
+
+    private int getActivityIndex(T activity) {
+        return activityIndices.computeIfAbsent(activity, a -> activityIndices.size());
+    }
+
+    private void invalidatePrerequisites(Node node) {
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(node);
+
+        // Cached nodes always have cached prerequisites, so the walk can stop at the first uncached node...
+        while (!pending.isEmpty()) {
+            Node next = pending.pop();
+            if (prerequisiteCache.remove(next) != null) {
+                getOutEdges(next).forEach(e -> pending.push(e.getEnd()));
+            }
+        }
     }
 
     /**
@@ -215,11 +552,8 @@ public class Graph<T> {
      * @return the set of starting nodes in the graph.
      */
     Set<Node> getStartNodes() {
-        Set<Node> nodesWithEdges = edges.stream()
-                .map(Edge::getEnd)
-                .collect(toSet());
-        return nodes.stream()
-                .filter(n -> !nodesWithEdges.contains(n))
+        return getNodes().stream()
+                .filter(n -> !inEdges.containsKey(n))
                 .collect(toSet());
     }
 
@@ -229,22 +563,18 @@ public class Graph<T> {
      * @return the set of terminal nodes in the graph.
      */
     Set<Node> getTerminalNodes() {
-        Set<Node> nodesWithEdges = edges.stream()
-                .map(Edge::getStart)
-                .collect(toSet());
-        return nodes.stream()
-                .filter(n -> !nodesWithEdges.contains(n))
+        return getNodes().stream()
+                .filter(n -> !outEdges.containsKey(n))
                 .collect(toSet());
     }
 
-    private Stream<Edge<T>> getUnnecessaryDummies() {
-        return edges.stream()
-                // Only dummy edges can be collapsed
-                .filter(this::isDummyActivity)
+    private boolean isUnnecessaryDummy(Edge<T> e) {
+        // Only dummy edges can be collapsed
+        return isDummyActivity(e)
                 // Triangles can not be collapsed
-                .filter(this::isNotTriangleActivity)
+                && isNotTriangleActivity(e)
                 // Edges can not be collapsed if the starting node has non-dummy edges leaving it and the end node has different prerequisite non-dummy activities
-                .filter(this::endDoesNotHaveAdditionalPrerequisites);
+                && endDoesNotHaveAdditionalPrerequisites(e);
     }
 
     private boolean isDummyActivity(Edge<T> e) {
@@ -256,12 +586,10 @@ public class Graph<T> {
     }
 
     private Set<Long> getNodesThatAreConnectedTo(Node node) {
-        Set<Long> connected = edges.stream()
-                .filter(e -> e.getEnd().getId() == node.getId())
+        Set<Long> connected = getInEdges(node).stream()
                 .map(e -> e.getStart().getId())
                 .collect(toSet());
-        connected.addAll(edges.stream()
-                .filter(e -> e.getStart().getId() == node.getId())
+        connected.addAll(getOutEdges(node).stream()
                 .map(e -> e.getEnd().getId())
                 .collect(toSet()));
 
@@ -270,78 +598,131 @@ public class Graph<T> {
 
     private boolean endDoesNotHaveAdditionalPrerequisites(Edge<T> e) {
         boolean allowed = true;
-        if (edges.stream()
-                .filter(x -> x.getStart().getId() == e.getStart().getId())
-                .count() > 1) {
-            Set<Edge<T>> startPrerequisites = getPrerequisiteActivities(e.getStart());
-            Set<Edge<T>> endPrerequisites = getPrerequisiteActivities(e.getEnd());
-
-            endPrerequisites.removeAll(startPrerequisites);
+        if (getOutEdges(e.getStart()).size() > 1) {
+            BitSet endPrerequisites = (BitSet) getPrerequisiteActivities(e.getEnd()).clone();
+            endPrerequisites.andNot(getPrerequisiteActivities(e.getStart()));
 
             allowed = endPrerequisites.isEmpty();
         }
         return allowed;
     }
 
-    void collapseEdge(Edge<T> edge) {
+    Node collapseEdge(Edge<T> edge) {
         if (edge.getData().isPresent()) {
             throw new ProjectDesignerRuntimeException("Can not collapse an edge with activity data: " + edge);
         }
-        mergeNodes(edge.getStart(), edge.getEnd());
+        return mergeNodes(edge.getStart(), edge.getEnd());
     }
 
-    private void simplifySimilarDummyNodes() {
-        // Find all the nodes that only have dummy activities exiting from them...
-        List<Node> nodesWithNoNonDummyExitActivities = nodes.stream()
-                .filter(n -> edges.stream().noneMatch(e -> e.getStart().equals(n) && e.getData().isPresent()))
-                .collect(toList());
+    private boolean simplifySimilarDummyNodes() {
+        // Group the nodes that only have dummy activities exiting from them, and at least two exits, by their targets...
+        Map<Set<Long>, List<Node>> nodesByTargets = getNodes().stream()
+                .filter(n -> getOutEdges(n).size() > 1)
+                .filter(n -> getOutEdges(n).stream().noneMatch(e -> e.getData().isPresent()))
+                .collect(groupingBy(
+                        n -> getOutEdges(n).stream().map(e -> e.getEnd().getId()).collect(toSet()),
+                        LinkedHashMap::new,
+                        toList()));
+
+        // ...then replace the exits of every other node in each group with a single dummy to the first node
+        boolean simplified = false;
+        for (List<Node> similarNodes : nodesByTargets.values()) {
+            Node nodeToKeep = similarNodes.get(0);
+            for (Node otherNode : similarNodes.subList(1, similarNodes.size())) {
+                new ArrayList<>(getOutEdges(otherNode)).forEach(edges::remove);
+                edges.add(new Edge<>(otherNode, nodeToKeep));
+                simplified = true;
+            }
+        }
 
-        // Reduce the list to only nodes that have at least two exits...
-        nodesWithNoNonDummyExitActivities.removeIf(n -> edges.stream().filter(e -> e.getStart().equals(n)).count() < 2);
+        return simplified;
+    }
 
-        Map<Node, Set<Long>> nodeTargets = new HashMap<>();
+    private Set<Node> getNodesConnectedTo(Node node) {
+        return Stream.concat(getOutEdges(node).stream(), getInEdges(node).stream())
+                .flatMap(e -> Stream.of(e.getStart(), e.getEnd()))
+                .filter(n -> !n.equals(node))
+                .collect(toSet());
+    }
 
-        nodesWithNoNonDummyExitActivities.forEach(n -> nodeTargets.put(n, edges.stream()
-                .filter(e -> e.getStart().equals(n)).map(e -> e.getEnd().getId()).collect(toSet())
-        ));
+    /**
+     * Edge set that keeps the per-node adjacency index of the graph up to date as edges are added and removed.
+     */
+    private class EdgeSet extends AbstractSet<Edge<T>> {
 
-        while (nodesWithNoNonDummyExitActivities.size() > 1) {
-            Node nodeToCompare = nodesWithNoNonDummyExitActivities.remove(0);
+        private final Set<Edge<T>> delegate = new HashSet<>();
 
-            for (Node otherNode : nodesWithNoNonDummyExitActivities) {
-                if (nodeTargets.get(nodeToCompare).equals(nodeTargets.get(otherNode))) {
-                    List<Edge<T>> otherNodeExits = edges.stream()
-                            .filter(e -> e.getStart().equals(otherNode))
-                            .collect(toList());
+        @Override
+        public Iterator<Edge<T>> iterator() {
+            applyPendingMerges();
+            Iterator<Edge<T>> iterator = delegate.iterator();
+            return new Iterator<Edge<T>>() {
 
-                    Edge<T> edgeToUpdate = otherNodeExits.remove(0);
-                    edges.remove(edgeToUpdate);
-                    edges.add(new Edge<>(edgeToUpdate.getStart(), nodeToCompare, edgeToUpdate.getData().orElse(null)));
+                private Edge<T> current;
 
-                    edges.removeAll(otherNodeExits);
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
 
-                    nodeTargets.get(otherNode).clear();
-                    nodeTargets.get(otherNode).add(nodeToCompare.getId());
+                @Override
+                public Edge<T> next() {
+                    current = iterator.next();
+                    return current;
                 }
+
+                @Override
+                public void remove() {
+                    iterator.remove();
+                    unindexEdge(current);
+                }
+
+            };
+        }
+
+        @Override
+        public int size() {
+            applyPendingMerges();
+            return delegate.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            applyPendingMerges();
+            return delegate.contains(o);
+        }
+
+        @Override
+        public boolean add(Edge<T> edge) {
+            applyPendingMerges();
+            if (delegate.add(edge)) {
+                indexEdge(edge);
+                return true;
             }
+            return false;
+        }
 
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean remove(Object o) {
+            applyPendingMerges();
+            if (delegate.remove(o)) {
+                unindexEdge((Edge<T>) o);
+                return true;
+            }
+            return false;
         }
-    }
 
-    private Stream<Edge<T>> getDummiesThatAreOnlyExitsFromNodes() {
-        return nodes.stream()
-                .filter(n -> edges.stream().filter(e -> e.getStart().equals(n)).count() == 1)
-                .flatMap(n -> edges.stream().filter(e -> e.getStart().equals(n)))
-                .filter(e -> !e.getData().isPresent())
-                .filter(e -> disjoint(getNodesConnectedTo(e.getStart()), getNodesConnectedTo(e.getEnd())));
-    }
+        @Override
+        public void clear() {
+            pendingMergedNodes.clear();
+            mergedNodeParents.clear();
+            delegate.clear();
+            outEdges.clear();
+            inEdges.clear();
+            prerequisiteCache.clear();
+        }
 
-    private Set<Node> getNodesConnectedTo(Node node) {
-        return edges.stream()
-                .filter(e -> e.getStart().equals(node) || e.getEnd().equals(node))
-                .flatMap(e -> Stream.of(e.getStart(), e.getEnd()))
-                .filter(n -> !n.equals(node))
-                .collect(toSet());
     }
 
 }
@@ -0,0 +1,462 @@
+package com.portkullis.projectdesigner.engine.impl;
+
+import com.portkullis.projectdesigner.engine.AssignmentEngine.AssignmentListener;
+import com.portkullis.projectdesigner.engine.AssignmentEngine.ProjectData;
+import com.portkullis.projectdesigner.engine.ImprovementEngine;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static java.lang.Math.max;
+import static java.util.Comparator.comparingInt;
+
+/**
+ * Implementation of the improvement engine that uses simulated annealing. The activities are first put into the order
+ * in which they start with the current assignments, and each resource then works through its activities in that
+ * order. A move either gives one activity another resource of its type, or swaps the resources of two activities.
+ * <p>
+ * After a move, start times are only recalculated for the moved activities and for the activities whose prerequisites
+ * or previous activity on a resource actually changed, and a rejected move is undone by restoring those start times.
+ * Every worker thread of the pool runs its own search, from the current assignments with its own random moves, and the
+ * best assignments of all the searches are returned. The cancellation check is called from the worker threads.
+ * <p>
+ * The searches keep every worker of the pool busy until the deadline or cancellation, so the pool should not be shared
+ * with work that has to make progress in the meantime, such as parallel streams on the common pool.
+ */
+public class ImprovementEngineImpl<A, R> implements ImprovementEngine<A, R> {
+
+    private static final int MOVES_PER_CHECK = 256;
+    private static final double COOLING_RATE = 0.97;
+    private static final double MINIMUM_TEMPERATURE = 0.001;
+
+    private final ForkJoinPool searchPool;
+
+    /**
+     * Constructs an engine that searches on its own pool, with one worker thread for each available processor.
+     */
+    public ImprovementEngineImpl() {
+        this(new ForkJoinPool(Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Constructs an engine that runs one search for each worker thread of the given pool. The searches occupy every
+     * worker of the pool until the deadline.
+     *
+     * @param searchPool the pool on which to search.
+     */
+    public ImprovementEngineImpl(ForkJoinPool searchPool) {
+        this.searchPool = searchPool;
+    }
+
+    @Override
+    public Improvement<A, R> improve(ProjectData<A, R> project, Instant deadline, BooleanSupplier cancellation) {
+        Network<A, R> network = new Network<>(project);
+        SplittableRandom random = new SplittableRandom();
+
+        List<ForkJoinTask<Search>> searches = new ArrayList<>();
+        for (int worker = 0; worker < max(1, searchPool.getParallelism()); worker++) {
+            Search search = new Search(network, random.split());
+            searches.add(searchPool.submit(() -> search.run(deadline, cancellation)));
+        }
+
+        Search best = null;
+        long evaluatedMoves = 0;
+        for (ForkJoinTask<Search> task : searches) {
+            Search search = task.join();
+            evaluatedMoves += search.evaluatedMoves;
+            if (best == null || search.bestCompletion < best.bestCompletion) {
+                best = search;
+            }
+        }
+
+        Map<A, R> assignments = new LinkedHashMap<>();
+        for (int i : network.movableActivities) {
+            assignments.put(network.activities.get(i), network.resources.get(best.bestResources[i]));
+        }
+        return new SearchedImprovement<>(assignments, best.initialCompletion, best.bestCompletion,
+                evaluatedMoves);
+    }
+
+    /**
+     * One simulated annealing search, with its own current assignments and start times.
+     */
+    private static final class Search {
+
+        private final Network<?, ?> network;
+        private final SplittableRandom random;
+
+        private final int[] resources;
+        private final List<TreeSet<Integer>> sequences;
+        private final int[] starts;
+        private int completion;
+        private int completionCount;
+
+        private final BitSet changedActivities = new BitSet();
+        private final int[] undoActivities;
+        private final int[] undoStarts;
+        private int undoCount;
+
+        private final int initialCompletion;
+        private int bestCompletion;
+        private int[] bestResources;
+        private long evaluatedMoves;
+
+        private Search(Network<?, ?> network, SplittableRandom random) {
+            this.network = network;
+            this.random = random;
+
+            int activityCount = network.durations.length;
+            resources = new int[activityCount];
+            sequences = new ArrayList<>(network.resources.size());
+            for (int r = 0; r < network.resources.size(); r++) {
+                sequences.add(new TreeSet<>());
+            }
+            starts = new int[activityCount];
+            undoActivities = new int[activityCount];
+            undoStarts = new int[activityCount];
+            load(network.initialResources);
+
+            initialCompletion = completion;
+            bestCompletion = completion;
+            bestResources = resources.clone();
+        }
+
+        private Search run(Instant deadline, BooleanSupplier cancellation) {
+            if (network.movableActivities.length == 0) {
+                return this;
+            }
+
+            double temperature = network.initialTemperature;
+            while (!cancellation.getAsBoolean() && Instant.now().isBefore(deadline)) {
+                for (int m = 0; m < MOVES_PER_CHECK; m++) {
+                    move(temperature);
+                }
+
+                // Cool down, and start again from the best assignments once the search is only accepting
+                // improvements...
+                temperature *= COOLING_RATE;
+                if (temperature < network.initialTemperature * MINIMUM_TEMPERATURE) {
+                    temperature = network.initialTemperature;
+                    load(bestResources);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Gives every movable activity the given resource, and calculates all start times.
+         */
+        private void load(int[] activityResources) {
+            System.arraycopy(activityResources, 0, resources, 0, resources.length);
+            sequences.forEach(TreeSet::clear);
+            for (int i = 0; i < resources.length; i++) {
+                if (resources[i] >= 0) {
+                    sequences.get(resources[i]).add(i);
+                }
+                for (int r : network.fixedResources[i]) {
+                    sequences.get(r).add(i);
+                }
+                starts[i] = calculateStart(i);
+            }
+            calculateCompletion();
+        }
+
+        /**
+         * Makes a random move, and keeps it if it does not delay the completion or, with a probability that falls
+         * with the temperature, if it does.
+         */
+        private void move(double temperature) {
+            int[] movable = network.movableActivities;
+            int activity = movable[random.nextInt(movable.length)];
+            int resource = resources[activity];
+            int otherActivity = movable[random.nextInt(movable.length)];
+            int otherResource = resources[otherActivity];
+
+            boolean swap = random.nextBoolean() && otherResource != resource
+                    && Network.contains(network.candidateResources[activity], otherResource)
+                    && Network.contains(network.candidateResources[otherActivity], resource);
+            if (!swap) {
+                int[] candidates = network.candidateResources[activity];
+                otherResource = candidates[random.nextInt(candidates.length)];
+                if (otherResource == resource) {
+                    return;
+                }
+            }
+
+            evaluatedMoves++;
+            int previousCompletion = completion;
+            int previousCompletionCount = completionCount;
+            undoCount = 0;
+            reassign(activity, otherResource);
+            if (swap) {
+                reassign(otherActivity, resource);
+            }
+            updateStarts();
+
+            int delay = completion - previousCompletion;
+            if (delay <= 0 || random.nextDouble() < Math.exp(-delay / temperature)) {
+                if (completion < bestCompletion) {
+                    bestCompletion = completion;
+                    bestResources = resources.clone();
+                }
+                return;
+            }
+
+            // Undo the move...
+            if (swap) {
+                moveInSequences(otherActivity, resource, otherResource);
+            }
+            moveInSequences(activity, otherResource, resource);
+            while (undoCount > 0) {
+                undoCount--;
+                starts[undoActivities[undoCount]] = undoStarts[undoCount];
+            }
+            completion = previousCompletion;
+            completionCount = previousCompletionCount;
+        }
+
+        /**
+         * Gives an activity another resource, and marks the activities whose previous activity on a resource changes.
+         */
+        private void reassign(int activity, int resource) {
+            int previousResource = resources[activity];
+            moveInSequences(activity, previousResource, resource);
+            changedActivities.set(activity);
+            markNext(previousResource, activity);
+            markNext(resource, activity);
+        }
+
+        private void moveInSequences(int activity, int from, int to) {
+            sequences.get(from).remove(activity);
+            sequences.get(to).add(activity);
+            resources[activity] = to;
+        }
+
+        private void markNext(int resource, int activity) {
+            Integer next = sequences.get(resource).higher(activity);
+            if (next != null) {
+                changedActivities.set(next);
+            }
+        }
+
+        /**
+         * Recalculates the start times of the marked activities, and of every activity that follows an activity whose
+         * start time changes. Everything that an activity waits for has a lower index, so a single pass suffices.
+         */
+        private void updateStarts() {
+            for (int i = changedActivities.nextSetBit(0); i >= 0; i = changedActivities.nextSetBit(i + 1)) {
+                changedActivities.clear(i);
+                int start = calculateStart(i);
+                if (start == starts[i]) {
+                    continue;
+                }
+
+                undoActivities[undoCount] = i;
+                undoStarts[undoCount++] = starts[i];
+                updateCompletion(starts[i] + network.durations[i], start + network.durations[i]);
+                starts[i] = start;
+
+                for (int s : network.successors[i]) {
+                    changedActivities.set(s);
+                }
+                if (resources[i] >= 0) {
+                    markNext(resources[i], i);
+                }
+                for (int r : network.fixedResources[i]) {
+                    markNext(r, i);
+                }
+            }
+            if (completionCount == 0) {
+                calculateCompletion();
+            }
+        }
+
+        private int calculateStart(int activity) {
+            int start = 0;
+            for (int p : network.prerequisites[activity]) {
+                start = max(start, starts[p] + network.durations[p]);
+            }
+            if (resources[activity] >= 0) {
+                start = max(start, getResourceEnd(resources[activity], activity));
+            }
+            for (int r : network.fixedResources[activity]) {
+                start = max(start, getResourceEnd(r, activity));
+            }
+            return start;
+        }
+
+        /**
+         * Returns the time at which a resource finishes the activity it works on before the given one.
+         */
+        private int getResourceEnd(int resource, int activity) {
+            Integer previous = sequences.get(resource).lower(activity);
+            return previous == null ? 0 : starts[previous] + network.durations[previous];
+        }
+
+        private void updateCompletion(int previousEnd, int end) {
+            if (previousEnd == completion) {
+                completionCount--;
+            }
+            if (end > completion) {
+                completion = end;
+                completionCount = 1;
+            } else if (end == completion) {
+                completionCount++;
+            }
+        }
+
+        private void calculateCompletion() {
+            completion = 0;
+            completionCount = 0;
+            for (int i = 0; i < starts.length; i++) {
+                updateCompletion(-1, starts[i] + network.durations[i]);
+            }
+        }
+
+    }
+
+    /**
+     * Everything that a search reads from the project. Activities without resources are first given one, as by the
+     * assignment engine. Activities are then indexed in the order in which they start, so prerequisites and previous
+     * activities on a resource always have lower indices, and resources are indexed in the order in which they are
+     * first found. A network is never modified once it is
+     * created, so any number of searches can share it.
+     */
+    private static final class Network<A, R> {
+
+        private final List<A> activities;
+        private final List<R> resources = new ArrayList<>();
+        private final int[] durations;
+        private final int[][] prerequisites;
+        private final int[][] successors;
+        private final int[][] fixedResources;
+        private final int[] initialResources;
+        private final int[][] candidateResources;
+        private final int[] movableActivities;
+        private final double initialTemperature;
+
+        private Network(ProjectData<A, R> project) {
+            AssignmentEngineImpl.Snapshot<A, R> snapshot = new AssignmentEngineImpl.Snapshot<>(project);
+            AssignmentEngineImpl.Pass<A, R> pass = AssignmentEngineImpl.schedule(snapshot,
+                    snapshot.getPriorities(AssignmentEngineImpl.PriorityRule.MINIMUM_FLOAT, 0),
+                    new AssignmentListener<A, R>() {
+                    });
+            Map<A, R> passResources = new HashMap<>();
+            for (int a = 0; a < pass.assignedActivities.size(); a++) {
+                passResources.put(pass.assignedActivities.get(a), pass.assignedResources.get(a));
+            }
+            int activityCount = snapshot.activities.size();
+
+            // Put the activities into the order in which they start with the current assignments; activities that
+            // start at the same time stay in topological order...
+            int[] startOrder = IntStream.range(0, activityCount)
+                    .boxed()
+                    .sorted(comparingInt((Integer i) -> pass.starts[i]).thenComparingInt(i -> i))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            int[] indices = new int[activityCount];
+            for (int i = 0; i < activityCount; i++) {
+                indices[startOrder[i]] = i;
+            }
+
+            Map<R, Integer> resourceIndices = new HashMap<>();
+            activities = new ArrayList<>(activityCount);
+            durations = new int[activityCount];
+            prerequisites = new int[activityCount][];
+            successors = new int[activityCount][];
+            fixedResources = new int[activityCount][];
+            initialResources = new int[activityCount];
+            candidateResources = new int[activityCount][];
+            List<Integer> movable = new ArrayList<>();
+            for (int i = 0; i < activityCount; i++) {
+                int o = startOrder[i];
+                A activity = snapshot.activities.get(o);
+                activities.add(activity);
+                durations[i] = snapshot.durations[o];
+                prerequisites[i] = Arrays.stream(snapshot.prerequisites[o]).map(p -> indices[p]).toArray();
+                successors[i] = Arrays.stream(snapshot.successors[o]).map(s -> indices[s]).toArray();
+                candidateResources[i] = indexResources(snapshot.candidateResources.get(o), resourceIndices);
+
+                Collection<R> activityResources = passResources.containsKey(activity)
+                        ? Collections.singletonList(passResources.get(activity))
+                        : snapshot.assignedResources.get(o);
+                int[] assigned = indexResources(activityResources, resourceIndices);
+                if (assigned.length == 1 && candidateResources[i].length > 1
+                        && contains(candidateResources[i], assigned[0])) {
+                    fixedResources[i] = new int[0];
+                    initialResources[i] = assigned[0];
+                    movable.add(i);
+                } else {
+                    fixedResources[i] = assigned;
+                    initialResources[i] = -1;
+                }
+            }
+            movableActivities = movable.stream().mapToInt(Integer::intValue).toArray();
+
+            // Start hot enough to accept a delay of a quarter of a typical activity about a third of the time...
+            double averageDuration = Arrays.stream(movableActivities).map(i -> durations[i]).average().orElse(1);
+            initialTemperature = max(1.0, averageDuration / 4);
+        }
+
+        private int[] indexResources(Collection<R> activityResources, Map<R, Integer> resourceIndices) {
+            return activityResources.stream()
+                    .mapToInt(r -> resourceIndices.computeIfAbsent(r, k -> {
+                        resources.add(k);
+                        return resources.size() - 1;
+                    }))
+                    .toArray();
+        }
+
+        private static boolean contains(int[] values, int value) {
+            for (int v : values) {
+                if (v == value) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+    }
+
+    private static final class SearchedImprovement<A, R> implements Improvement<A, R> {
+
+        private final Map<A, R> assignments;
+        private final int initialCompletionTime;
+        private final int completionTime;
+        private final long evaluatedMoves;
+
+        private SearchedImprovement(Map<A, R> assignments, int initialCompletionTime, int completionTime,
+                                    long evaluatedMoves) {
+            this.assignments = Collections.unmodifiableMap(assignments);
+            this.initialCompletionTime = initialCompletionTime;
+            this.completionTime = completionTime;
+            this.evaluatedMoves = evaluatedMoves;
+        }
+
+        @Override
+        public Map<A, R> getAssignments() {
+            return assignments;
+        }
+
+        @Override
+        public int getInitialCompletionTime() {
+            return initialCompletionTime;
+        }
+
+        @Override
+        public int getCompletionTime() {
+            return completionTime;
+        }
+
+        @Override
+        public long getEvaluatedMoves() {
+            return evaluatedMoves;
+        }
+
+    }
+
+}
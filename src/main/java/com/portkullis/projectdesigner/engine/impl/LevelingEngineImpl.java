@@ -0,0 +1,166 @@
+package com.portkullis.projectdesigner.engine.impl;
+
+import com.portkullis.projectdesigner.engine.LevelingEngine;
+
+import java.util.*;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.util.Comparator.comparingInt;
+
+/**
+ * Implementation of the leveling engine. Every activity first starts at its earliest start, and the demand for each
+ * resource type is kept in a {@link LoadProfile}. Activities with total float are then moved one at a time: the demand
+ * of the activity is removed, and it is added again at the start between the end of its prerequisites and the start
+ * of its successors at which the highest demand for its resource type is the lowest. An activity only moves if that
+ * demand is lower than where it is, so leveling never raises the peak demand.
+ * <p>
+ * Each move tries the times at which the demand changes within the window of the activity, at O(log t) time each in
+ * the completion time of the project. Tries that would still overlap the highest demand seen so far are skipped, but
+ * in the worst case every change in the window is tried, so leveling takes O(n<sup>2</sup> log t) time per resource
+ * type, and O(n log n + n log t) when the windows hold a bounded number of changes.
+ * <p>
+ * Initial peak demands are found by sweeping over the start and end times of the activities of each resource type.
+ */
+public class LevelingEngineImpl<A> implements LevelingEngine<A> {
+
+    @Override
+    public LevelingPlan<A> level(ProjectData<A> project) {
+        ActivityNetwork<A> network = new ActivityNetwork<>(project.getActivities(), project::getDirectPrerequisites,
+                project::getDuration);
+        int activityCount = network.size();
+        int[] durations = network.durations;
+        int[] earliestStarts = network.earliestStarts;
+        int completionTime = network.completionTime;
+
+        List<String> resourceTypes = new ArrayList<>(new TreeSet<>(project.getResourceTypes()));
+        int[] types = new int[activityCount];
+        int[] latestStarts = new int[activityCount];
+        for (int i = 0; i < activityCount; i++) {
+            types[i] = resourceTypes.indexOf(project.getResourceType(network.getActivities().get(i)));
+            latestStarts[i] = network.latestFinishes[i] - durations[i];
+        }
+
+        // Every activity starts at its earliest start, so the demand already holds the initial peaks...
+        List<LoadProfile> profiles = new ArrayList<>(resourceTypes.size());
+        for (int t = 0; t < resourceTypes.size(); t++) {
+            profiles.add(new LoadProfile(completionTime));
+        }
+        int[] starts = earliestStarts.clone();
+        List<Integer> movableActivities = new ArrayList<>();
+        for (int i = 0; i < activityCount; i++) {
+            if (types[i] >= 0) {
+                profiles.get(types[i]).add(starts[i], starts[i] + durations[i], 1);
+            }
+            if (latestStarts[i] > earliestStarts[i]) {
+                movableActivities.add(i);
+            }
+        }
+
+        // Activities are moved one at a time, first from the end of the project so that their successors have already
+        // made room, and then from the start. Since an activity stays where it is unless the highest demand is lower
+        // elsewhere, no move can raise the peak demand...
+        movableActivities.sort(comparingInt((Integer i) -> earliestStarts[i])
+                .thenComparingInt(i -> latestStarts[i] - earliestStarts[i])
+                .thenComparingInt(i -> i));
+        List<Integer> reversedActivities = new ArrayList<>(movableActivities);
+        Collections.reverse(reversedActivities);
+        for (List<Integer> activities : Arrays.asList(reversedActivities, movableActivities)) {
+            for (int i : activities) {
+                int earliestStart = earliestStarts[i];
+                for (int p : network.prerequisites[i]) {
+                    earliestStart = max(earliestStart, starts[p] + durations[p]);
+                }
+                int latestStart = latestStarts[i];
+                for (int s : network.successors[i]) {
+                    latestStart = min(latestStart, starts[s] - durations[i]);
+                }
+                if (types[i] >= 0 && durations[i] > 0) {
+                    LoadProfile profile = profiles.get(types[i]);
+                    profile.add(starts[i], starts[i] + durations[i], -1);
+                    int load = profile.getMaximum(starts[i], starts[i] + durations[i]);
+                    int start = profile.findLeastLoadedStart(earliestStart, latestStart, durations[i]);
+                    if (profile.getMaximum(start, start + durations[i]) < load) {
+                        starts[i] = start;
+                    }
+                    profile.add(starts[i], starts[i] + durations[i], 1);
+                } else {
+                    starts[i] = earliestStart;
+                }
+            }
+        }
+
+        Map<A, Integer> leveledStarts = new LinkedHashMap<>();
+        for (int i = 0; i < activityCount; i++) {
+            leveledStarts.put(network.getActivities().get(i), starts[i]);
+        }
+        Map<String, Integer> initialPeakDemands = new TreeMap<>();
+        Map<String, Integer> peakDemands = new TreeMap<>();
+        for (int t = 0; t < resourceTypes.size(); t++) {
+            initialPeakDemands.put(resourceTypes.get(t), getPeakDemand(t, types, earliestStarts, durations));
+            peakDemands.put(resourceTypes.get(t), profiles.get(t).getMaximum());
+        }
+        return new LeveledPlan<>(leveledStarts, completionTime, initialPeakDemands, peakDemands);
+    }
+
+    /**
+     * Returns the highest number of activities of a resource type that run at the same time.
+     */
+    private static int getPeakDemand(int type, int[] types, int[] starts, int[] durations) {
+        List<int[]> events = new ArrayList<>();
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] == type && durations[i] > 0) {
+                events.add(new int[]{starts[i], 1});
+                events.add(new int[]{starts[i] + durations[i], -1});
+            }
+        }
+
+        // Activities that end at a time are finished before the activities that start at that time...
+        events.sort(comparingInt((int[] e) -> e[0]).thenComparingInt(e -> e[1]));
+        int demand = 0;
+        int peakDemand = 0;
+        for (int[] event : events) {
+            demand += event[1];
+            peakDemand = max(peakDemand, demand);
+        }
+        return peakDemand;
+    }
+
+    private static final class LeveledPlan<A> implements LevelingPlan<A> {
+
+        private final Map<A, Integer> starts;
+        private final int completionTime;
+        private final Map<String, Integer> initialPeakDemands;
+        private final Map<String, Integer> peakDemands;
+
+        private LeveledPlan(Map<A, Integer> starts, int completionTime, Map<String, Integer> initialPeakDemands,
+                            Map<String, Integer> peakDemands) {
+            this.starts = Collections.unmodifiableMap(starts);
+            this.completionTime = completionTime;
+            this.initialPeakDemands = Collections.unmodifiableMap(initialPeakDemands);
+            this.peakDemands = Collections.unmodifiableMap(peakDemands);
+        }
+
+        @Override
+        public Map<A, Integer> getStarts() {
+            return starts;
+        }
+
+        @Override
+        public int getCompletionTime() {
+            return completionTime;
+        }
+
+        @Override
+        public Map<String, Integer> getInitialPeakDemands() {
+            return initialPeakDemands;
+        }
+
+        @Override
+        public Map<String, Integer> getPeakDemands() {
+            return peakDemands;
+        }
+
+    }
+
+}
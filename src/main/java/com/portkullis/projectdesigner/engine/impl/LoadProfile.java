@@ -0,0 +1,168 @@
+package com.portkullis.projectdesigner.engine.impl;
+
+import java.util.TreeSet;
+
+/**
+ * Demand for a resource type over time, from time zero up to, but not including, a given end time. The demand is kept
+ * in a segment tree, so adding demand over a span and finding the highest demand over a span each take O(log t) time
+ * in the length of the profile. The times at which the demand changes are also kept, since the least loaded start for
+ * an activity is always either the earliest acceptable start or one of those times.
+ */
+final class LoadProfile {
+
+    private final int length;
+    private final int[] maxima;
+    private final int[] additions;
+    private final TreeSet<Integer> changes = new TreeSet<>();
+
+    /**
+     * Constructs an empty profile.
+     *
+     * @param length the end time of the profile.
+     */
+    LoadProfile(int length) {
+        this.length = length;
+        int nodes = 1;
+        while (nodes < length) {
+            nodes <<= 1;
+        }
+        maxima = new int[2 * nodes];
+        additions = new int[2 * nodes];
+    }
+
+    /**
+     * Adds demand from a start time up to, but not including, an end time.
+     *
+     * @param start  the start time.
+     * @param end    the end time.
+     * @param demand the demand to add.
+     */
+    void add(int start, int end, int demand) {
+        start = Math.max(start, 0);
+        end = Math.min(end, length);
+        if (start >= end) {
+            return;
+        }
+        add(1, 0, length, start, end, demand);
+        changes.add(start);
+        changes.add(end);
+    }
+
+    private void add(int node, int nodeStart, int nodeEnd, int start, int end, int demand) {
+        if (start <= nodeStart && nodeEnd <= end) {
+            maxima[node] += demand;
+            additions[node] += demand;
+            return;
+        }
+        int middle = (nodeStart + nodeEnd) >>> 1;
+        if (start < middle) {
+            add(2 * node, nodeStart, middle, start, end, demand);
+        }
+        if (middle < end) {
+            add(2 * node + 1, middle, nodeEnd, start, end, demand);
+        }
+        maxima[node] = additions[node] + Math.max(maxima[2 * node], maxima[2 * node + 1]);
+    }
+
+    /**
+     * Returns the highest demand from a start time up to, but not including, an end time.
+     *
+     * @param start the start time.
+     * @param end   the end time.
+     * @return the highest demand, or zero if the span is empty.
+     */
+    int getMaximum(int start, int end) {
+        start = Math.max(start, 0);
+        end = Math.min(end, length);
+        return start >= end ? 0 : getMaximum(1, 0, length, start, end);
+    }
+
+    private int getMaximum(int node, int nodeStart, int nodeEnd, int start, int end) {
+        if (start <= nodeStart && nodeEnd <= end) {
+            return maxima[node];
+        }
+        int middle = (nodeStart + nodeEnd) >>> 1;
+        int maximum = 0;
+        if (start < middle) {
+            maximum = getMaximum(2 * node, nodeStart, middle, start, end);
+        }
+        if (middle < end) {
+            maximum = Math.max(maximum, getMaximum(2 * node + 1, middle, nodeEnd, start, end));
+        }
+        return additions[node] + maximum;
+    }
+
+    /**
+     * Returns the highest demand over the whole profile.
+     *
+     * @return the highest demand.
+     */
+    int getMaximum() {
+        return getMaximum(0, length);
+    }
+
+    /**
+     * Returns the last time from a start time up to, but not including, an end time at which the demand is at least
+     * the given demand.
+     *
+     * @param start  the start time.
+     * @param end    the end time.
+     * @param demand the demand.
+     * @return the last such time, or -1 if there is none.
+     */
+    int findLast(int start, int end, int demand) {
+        start = Math.max(start, 0);
+        end = Math.min(end, length);
+        return start >= end ? -1 : findLast(1, 0, length, start, end, demand);
+    }
+
+    private int findLast(int node, int nodeStart, int nodeEnd, int start, int end, int demand) {
+        if (maxima[node] < demand) {
+            return -1;
+        }
+        if (nodeEnd - nodeStart == 1) {
+            return nodeStart;
+        }
+        int middle = (nodeStart + nodeEnd) >>> 1;
+        int last = -1;
+        if (middle < end) {
+            last = findLast(2 * node + 1, middle, nodeEnd, start, end, demand - additions[node]);
+        }
+        if (last < 0 && start < middle) {
+            last = findLast(2 * node, nodeStart, middle, start, end, demand - additions[node]);
+        }
+        return last;
+    }
+
+    /**
+     * Returns the start, between two times, at which the highest demand over a span of the given duration is the
+     * lowest. Of several such starts, the earliest is returned. After each try, every start whose span would still
+     * hold the last time at which the tried span is at least as loaded as the best start so far is skipped.
+     *
+     * @param earliestStart the earliest acceptable start.
+     * @param latestStart   the latest acceptable start.
+     * @param duration      the duration of the span.
+     * @return the least loaded start.
+     */
+    int findLeastLoadedStart(int earliestStart, int latestStart, int duration) {
+        int bestStart = earliestStart;
+        int bestLoad = getMaximum(earliestStart, earliestStart + duration);
+        int start = earliestStart;
+        while (bestLoad > 0) {
+            // A better start has to begin after that time, and the demand only drops when it passes a change...
+            int peak = findLast(start, start + duration, bestLoad);
+            Integer change = changes.higher(peak);
+            if (change == null || change > latestStart) {
+                break;
+            }
+            start = change;
+            int load = getMaximum(start, start + duration);
+            if (load < bestLoad) {
+                bestStart = start;
+                bestLoad = load;
+            }
+        }
+        return bestStart;
+    }
+
+}
@@ -0,0 +1,166 @@
+package com.portkullis.projectdesigner.engine.impl;
+
+import java.util.Arrays;
+
+/**
+ * Minimum cut of a flow network, found with Dinic's maximum flow algorithm. Nodes are numbered from zero, and arcs may
+ * have an infinite capacity.
+ */
+final class MinimumCut {
+
+    private static final double EPSILON = 1e-9;
+
+    private final int source;
+    private final int sink;
+    private final int[] firstArcs;
+
+    private int arcCount = 0;
+    private int[] arcTargets = new int[16];
+    private int[] nextArcs = new int[16];
+    private double[] residuals = new double[16];
+
+    private final int[] levels;
+    private final int[] currentArcs;
+    private final int[] pathArcs;
+
+    /**
+     * Constructs a network without any arcs.
+     *
+     * @param nodeCount the number of nodes.
+     * @param source    the source node.
+     * @param sink      the sink node.
+     */
+    MinimumCut(int nodeCount, int source, int sink) {
+        this.source = source;
+        this.sink = sink;
+        this.firstArcs = new int[nodeCount];
+        this.levels = new int[nodeCount];
+        this.currentArcs = new int[nodeCount];
+        this.pathArcs = new int[nodeCount];
+        Arrays.fill(firstArcs, -1);
+    }
+
+    /**
+     * Adds an arc, along with the opposite arc.
+     *
+     * @param from            the node at the start of the arc.
+     * @param to              the node at the end of the arc.
+     * @param capacity        the capacity of the arc.
+     * @param reverseCapacity the capacity of the opposite arc.
+     */
+    void addArc(int from, int to, double capacity, double reverseCapacity) {
+        if (arcCount + 2 > arcTargets.length) {
+            arcTargets = Arrays.copyOf(arcTargets, arcTargets.length * 2);
+            nextArcs = Arrays.copyOf(nextArcs, nextArcs.length * 2);
+            residuals = Arrays.copyOf(residuals, residuals.length * 2);
+        }
+        // The opposite arcs are stored next to each other, so either one is found from the other with an XOR...
+        addHalfArc(from, to, capacity);
+        addHalfArc(to, from, reverseCapacity);
+    }
+
+    private void addHalfArc(int from, int to, double capacity) {
+        arcTargets[arcCount] = to;
+        residuals[arcCount] = capacity;
+        nextArcs[arcCount] = firstArcs[from];
+        firstArcs[from] = arcCount++;
+    }
+
+    /**
+     * Finds the minimum cut, and returns the nodes on the source side of it.
+     *
+     * @return whether each node is on the source side of the cut, or {@code null} if every cut has infinite capacity.
+     */
+    boolean[] findSourceSide() {
+        while (findLevels()) {
+            System.arraycopy(firstArcs, 0, currentArcs, 0, firstArcs.length);
+            if (!pushBlockingFlow()) {
+                return null;
+            }
+        }
+
+        boolean[] sourceSide = new boolean[levels.length];
+        for (int node = 0; node < levels.length; node++) {
+            sourceSide[node] = levels[node] >= 0;
+        }
+        return sourceSide;
+    }
+
+    /**
+     * Labels every node with its distance from the source through arcs with residual capacity.
+     *
+     * @return {@code true} if the sink can still be reached.
+     */
+    private boolean findLevels() {
+        Arrays.fill(levels, -1);
+        int[] queue = new int[levels.length];
+        int head = 0;
+        int tail = 0;
+        levels[source] = 0;
+        queue[tail++] = source;
+        while (head < tail) {
+            int node = queue[head++];
+            for (int arc = firstArcs[node]; arc >= 0; arc = nextArcs[arc]) {
+                int target = arcTargets[arc];
+                if (levels[target] < 0 && residuals[arc] > EPSILON) {
+                    levels[target] = levels[node] + 1;
+                    queue[tail++] = target;
+                }
+            }
+        }
+        return levels[sink] >= 0;
+    }
+
+    /**
+     * Pushes flow from the source to the sink along paths of arcs that each lead to the next level, until no such path
+     * is left. Paths are walked with an explicit stack, as critical paths can be far longer than the call stack
+     * allows, and after each push the walk continues from the first arc that the push saturated.
+     *
+     * @return {@code false} if a path of infinite capacity was found.
+     */
+    private boolean pushBlockingFlow() {
+        int depth = 0;
+        int node = source;
+        while (true) {
+            if (node == sink) {
+                double flow = Double.POSITIVE_INFINITY;
+                for (int d = 0; d < depth; d++) {
+                    flow = Math.min(flow, residuals[pathArcs[d]]);
+                }
+                if (flow == Double.POSITIVE_INFINITY) {
+                    return false;
+                }
+
+                int saturatedDepth = depth;
+                for (int d = depth - 1; d >= 0; d--) {
+                    residuals[pathArcs[d]] -= flow;
+                    residuals[pathArcs[d] ^ 1] += flow;
+                    if (residuals[pathArcs[d]] <= EPSILON) {
+                        saturatedDepth = d;
+                    }
+                }
+                depth = saturatedDepth;
+                node = arcTargets[pathArcs[depth] ^ 1];
+                continue;
+            }
+
+            int arc = currentArcs[node];
+            while (arc >= 0 && !(levels[arcTargets[arc]] == levels[node] + 1 && residuals[arc] > EPSILON)) {
+                arc = nextArcs[arc];
+            }
+            currentArcs[node] = arc;
+
+            if (arc >= 0) {
+                pathArcs[depth++] = arc;
+                node = arcTargets[arc];
+            } else if (depth == 0) {
+                return true;
+            } else {
+                // Dead end, so step back and skip the arc that led here...
+                node = arcTargets[pathArcs[--depth] ^ 1];
+                currentArcs[node] = nextArcs[currentArcs[node]];
+            }
+        }
+    }
+
+}
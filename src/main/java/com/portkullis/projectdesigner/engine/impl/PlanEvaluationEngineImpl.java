@@ -0,0 +1,195 @@
+package com.portkullis.projectdesigner.engine.impl;
+
+import com.portkullis.projectdesigner.engine.AssignmentEngine.AssignmentListener;
+import com.portkullis.projectdesigner.engine.PlanEvaluationEngine;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.util.Comparator.comparingInt;
+
+/**
+ * Implementation of the plan evaluation engine. The network of activities and prerequisites is built once and shared
+ * by all plans, and every plan is then evaluated as a separate task on the pool. Each task layers the resources of its
+ * plan on top of the network, gives resources to unassigned activities with the same pass as the assignment engine,
+ * and adds an edge from each activity to the next activity on each of its resources before calculating the times.
+ */
+public class PlanEvaluationEngineImpl<A, R> implements PlanEvaluationEngine<A, R> {
+
+    private final ForkJoinPool evaluationPool;
+
+    /**
+     * Constructs an engine that evaluates plans on the common pool.
+     */
+    public PlanEvaluationEngineImpl() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs an engine that evaluates plans on the given pool.
+     *
+     * @param evaluationPool the pool on which to evaluate the plans.
+     */
+    public PlanEvaluationEngineImpl(ForkJoinPool evaluationPool) {
+        this.evaluationPool = evaluationPool;
+    }
+
+    @Override
+    public Map<String, PlanEvaluation<A, R>> evaluatePlans(ProjectData<A, R> project) {
+        ActivityNetwork<A> network = new ActivityNetwork<>(project.getActivities(), project::getDirectPrerequisites,
+                project::getDuration);
+
+        Map<String, ForkJoinTask<PlanEvaluation<A, R>>> evaluations = new TreeMap<>();
+        for (String plan : project.getPlanNames()) {
+            evaluations.put(plan, evaluationPool.submit(() -> evaluatePlan(project, network, plan)));
+        }
+
+        Map<String, PlanEvaluation<A, R>> planEvaluations = new TreeMap<>();
+        evaluations.forEach((plan, evaluation) -> planEvaluations.put(plan, evaluation.join()));
+        return Collections.unmodifiableMap(planEvaluations);
+    }
+
+    private static <A, R> PlanEvaluation<A, R> evaluatePlan(ProjectData<A, R> project, ActivityNetwork<A> network,
+                                                             String plan) {
+        AssignmentEngineImpl.Snapshot<A, R> snapshot = new AssignmentEngineImpl.Snapshot<>(network,
+                activity -> project.getAssignedResources(plan, activity),
+                activity -> {
+                    String resourceType = project.getResourceType(activity);
+                    return resourceType == null ? null : project.getResourcesOfType(plan, resourceType);
+                });
+        AssignmentEngineImpl.Pass<A, R> pass = AssignmentEngineImpl.schedule(snapshot,
+                snapshot.getPriorities(AssignmentEngineImpl.PriorityRule.MINIMUM_FLOAT, 0),
+                new AssignmentListener<A, R>() {
+                });
+
+        int activityCount = network.size();
+        List<Collection<R>> resources = new ArrayList<>(snapshot.assignedResources);
+        for (int a = 0; a < pass.assignedActivities.size(); a++) {
+            int i = network.order.indexOf(pass.assignedActivities.get(a));
+            resources.set(i, Collections.singletonList(pass.assignedResources.get(a)));
+        }
+
+        // Activities that start at the same time stay in topological order, so both prerequisites and previous
+        // activities on a resource always come first...
+        int[] startOrder = IntStream.range(0, activityCount)
+                .boxed()
+                .sorted(comparingInt((Integer i) -> pass.starts[i]).thenComparingInt(i -> i))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        Map<R, Integer> lastActivities = new HashMap<>();
+        int[][] resourcePrerequisites = new int[activityCount][];
+        for (int i : startOrder) {
+            resourcePrerequisites[i] = resources.get(i).stream()
+                    .map(r -> lastActivities.put(r, i))
+                    .filter(Objects::nonNull)
+                    .mapToInt(Integer::intValue)
+                    .distinct()
+                    .toArray();
+        }
+        int[][] resourceSuccessors = ActivityNetwork.invert(resourcePrerequisites);
+
+        int[] durations = network.durations;
+        int[] earliestStarts = new int[activityCount];
+        int completionTime = 0;
+        for (int i : startOrder) {
+            for (int p : network.prerequisites[i]) {
+                earliestStarts[i] = max(earliestStarts[i], earliestStarts[p] + durations[p]);
+            }
+            for (int p : resourcePrerequisites[i]) {
+                earliestStarts[i] = max(earliestStarts[i], earliestStarts[p] + durations[p]);
+            }
+            completionTime = max(completionTime, earliestStarts[i] + durations[i]);
+        }
+        int[] latestStarts = new int[activityCount];
+        for (int o = activityCount - 1; o >= 0; o--) {
+            int i = startOrder[o];
+            int latestFinish = completionTime;
+            for (int s : network.successors[i]) {
+                latestFinish = min(latestFinish, latestStarts[s]);
+            }
+            for (int s : resourceSuccessors[i]) {
+                latestFinish = min(latestFinish, latestStarts[s]);
+            }
+            latestStarts[i] = latestFinish - durations[i];
+        }
+
+        Map<A, Collection<R>> assignments = new LinkedHashMap<>();
+        Map<A, Integer> starts = new LinkedHashMap<>();
+        Map<A, Integer> totalFloats = new LinkedHashMap<>();
+        int criticalActivityCount = 0;
+        long totalFloatSum = 0;
+        for (int i = 0; i < activityCount; i++) {
+            A activity = network.getActivities().get(i);
+            int totalFloat = latestStarts[i] - earliestStarts[i];
+            if (!resources.get(i).isEmpty()) {
+                assignments.put(activity, Collections.unmodifiableCollection(resources.get(i)));
+            }
+            starts.put(activity, earliestStarts[i]);
+            totalFloats.put(activity, totalFloat);
+            if (totalFloat == 0) {
+                criticalActivityCount++;
+            }
+            totalFloatSum += totalFloat;
+        }
+        double averageTotalFloat = activityCount == 0 ? 0 : (double) totalFloatSum / activityCount;
+
+        return new EvaluatedPlan<>(assignments, starts, totalFloats, completionTime, criticalActivityCount,
+                averageTotalFloat);
+    }
+
+    private static final class EvaluatedPlan<A, R> implements PlanEvaluation<A, R> {
+
+        private final Map<A, Collection<R>> assignments;
+        private final Map<A, Integer> starts;
+        private final Map<A, Integer> totalFloats;
+        private final int completionTime;
+        private final int criticalActivityCount;
+        private final double averageTotalFloat;
+
+        private EvaluatedPlan(Map<A, Collection<R>> assignments, Map<A, Integer> starts, Map<A, Integer> totalFloats,
+                              int completionTime, int criticalActivityCount, double averageTotalFloat) {
+            this.assignments = Collections.unmodifiableMap(assignments);
+            this.starts = Collections.unmodifiableMap(starts);
+            this.totalFloats = Collections.unmodifiableMap(totalFloats);
+            this.completionTime = completionTime;
+            this.criticalActivityCount = criticalActivityCount;
+            this.averageTotalFloat = averageTotalFloat;
+        }
+
+        @Override
+        public Map<A, Collection<R>> getAssignments() {
+            return assignments;
+        }
+
+        @Override
+        public Map<A, Integer> getStarts() {
+            return starts;
+        }
+
+        @Override
+        public Map<A, Integer> getTotalFloats() {
+            return totalFloats;
+        }
+
+        @Override
+        public int getCompletionTime() {
+            return completionTime;
+        }
+
+        @Override
+        public int getCriticalActivityCount() {
+            return criticalActivityCount;
+        }
+
+        @Override
+        public double getAverageTotalFloat() {
+            return averageTotalFloat;
+        }
+
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.portkullis.projectdesigner.engine.impl;
+
+import java.util.*;
+
+/**
+ * Index of the times during which resources are occupied. The occupied spans of each resource are kept merged and
+ * sorted by start time, so checking whether a resource is free over a span and occupying a span each take O(log n)
+ * time in the number of spans of the resource, and finding a gap that is long enough takes O(log n) time plus the same
+ * again for every shorter gap that has to be skipped.
+ *
+ * @param <R> the resource type.
+ */
+final class ResourceOccupancy<R> {
+
+    private final Map<R, TreeMap<Integer, Integer>> occupiedSpans = new HashMap<>();
+
+    /**
+     * Marks a resource as occupied from a start time up to, but not including, an end time.
+     *
+     * @param resource the resource.
+     * @param start    the start time.
+     * @param end      the end time.
+     */
+    void occupy(R resource, int start, int end) {
+        if (end <= start) {
+            return;
+        }
+        TreeMap<Integer, Integer> spans = occupiedSpans.computeIfAbsent(resource, r -> new TreeMap<>());
+
+        // Merge with any span that overlaps or touches the new one...
+        Map.Entry<Integer, Integer> previous = spans.floorEntry(start);
+        if (previous != null && previous.getValue() >= start) {
+            start = previous.getKey();
+            end = Math.max(end, previous.getValue());
+        }
+        Map.Entry<Integer, Integer> next = spans.ceilingEntry(start);
+        while (next != null && next.getKey() <= end) {
+            end = Math.max(end, next.getValue());
+            spans.remove(next.getKey());
+            next = spans.higherEntry(next.getKey());
+        }
+        spans.put(start, end);
+    }
+
+    /**
+     * Checks whether a resource is free from a start time up to, but not including, an end time.
+     *
+     * @param resource the resource.
+     * @param start    the start time.
+     * @param end      the end time.
+     * @return {@code true} if the resource is free during the whole span.
+     */
+    boolean isFree(R resource, int start, int end) {
+        TreeMap<Integer, Integer> spans = occupiedSpans.get(resource);
+        if (spans == null || end <= start) {
+            return true;
+        }
+        Map.Entry<Integer, Integer> last = spans.lowerEntry(end);
+        return last == null || last.getValue() <= start;
+    }
+
+    /**
+     * Returns the first of the given resources that is free from a start time up to, but not including, an end time.
+     *
+     * @param resources the resources, in order of preference.
+     * @param start     the start time.
+     * @param end       the end time.
+     * @return the first free resource, if any.
+     */
+    Optional<R> findFirstFree(Collection<R> resources, int start, int end) {
+        return resources.stream()
+                .filter(r -> isFree(r, start, end))
+                .findFirst();
+    }
+
+    /**
+     * Returns the earliest time, at or after the given time, from which a resource is free for the given duration.
+     *
+     * @param resource      the resource.
+     * @param earliestStart the earliest acceptable start time.
+     * @param duration      the duration for which the resource must be free.
+     * @return the start time.
+     */
+    int findEarliestStart(R resource, int earliestStart, int duration) {
+        TreeMap<Integer, Integer> spans = occupiedSpans.get(resource);
+        if (spans == null || duration <= 0) {
+            return earliestStart;
+        }
+
+        int start = earliestStart;
+        Map.Entry<Integer, Integer> previous = spans.floorEntry(start);
+        if (previous != null && previous.getValue() > start) {
+            start = previous.getValue();
+        }
+        // Spans are merged, so the gap after each span ends at the start of the next one...
+        for (Map.Entry<Integer, Integer> next = spans.higherEntry(start);
+             next != null && next.getKey() < start + duration;
+             next = spans.higherEntry(start)) {
+            start = next.getValue();
+        }
+        return start;
+    }
+
+    /**
+     * Returns the earliest time, at or after the given time, from which any of the given resources is free for the
+     * given duration.
+     *
+     * @param resources     the resources.
+     * @param earliestStart the earliest acceptable start time.
+     * @param duration      the duration for which the resource must be free.
+     * @return the start time, or {@link Integer#MAX_VALUE} if there are no resources.
+     */
+    int findEarliestStart(Collection<R> resources, int earliestStart, int duration) {
+        int start = Integer.MAX_VALUE;
+        for (R resource : resources) {
+            start = Math.min(start, findEarliestStart(resource, earliestStart, duration));
+        }
+        return start;
+    }
+
+}
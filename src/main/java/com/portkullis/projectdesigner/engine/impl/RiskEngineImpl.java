@@ -0,0 +1,238 @@
+package com.portkullis.projectdesigner.engine.impl;
+
+import com.portkullis.projectdesigner.engine.CalculationEngine.ActivityData;
+import com.portkullis.projectdesigner.engine.RiskEngine;
+import com.portkullis.projectdesigner.exception.ProjectDesignerRuntimeException;
+import com.portkullis.projectdesigner.model.DurationDistribution;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * Monte Carlo implementation of the risk engine. The network is validated and sorted into topological order once, and
+ * flattened into index arrays. Iterations are then split into batches that run in parallel, each with its own split
+ * of the random number generator, its own working arrays and its own results; running an iteration does not allocate
+ * any objects. Batch results are merged as the batches complete.
+ */
+public class RiskEngineImpl implements RiskEngine {
+
+    private static final int ITERATIONS_PER_BATCH = 1024;
+
+    private final ForkJoinPool simulationPool;
+
+    /**
+     * Constructs an engine that runs simulations on the common pool.
+     */
+    public RiskEngineImpl() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs an engine that runs simulations on the given pool.
+     *
+     * @param simulationPool the pool on which to run simulation batches.
+     */
+    public RiskEngineImpl(ForkJoinPool simulationPool) {
+        this.simulationPool = simulationPool;
+    }
+
+    @Override
+    public RiskProfile simulate(Collection<? extends ActivityData> activities,
+                                Map<? extends ActivityData, DurationDistribution> distributions,
+                                int iterations, long seed) {
+        if (iterations <= 0) {
+            throw new ProjectDesignerRuntimeException("At least one iteration must be simulated.");
+        }
+
+        CriticalPathSchedule schedule = new CriticalPathSchedule(CalculationEngineImpl.getNetwork(activities), null);
+        Network network = new Network(schedule, distributions);
+        Results results = simulationPool.invoke(new SimulationTask(network, iterations, new SplittableRandom(seed)));
+
+        return new SimulatedRiskProfile(schedule.getActivities(), iterations, results);
+    }
+
+    /**
+     * The activity network in compressed sparse row form, with activities in topological order.
+     */
+    private static final class Network {
+
+        private final int activityCount;
+        private final int[] fixedDurations;
+        private final DurationDistribution[] distributions;
+        private final int[] prerequisiteOffsets;
+        private final int[] prerequisites;
+        private final int[] successorOffsets;
+        private final int[] successors;
+
+        private Network(CriticalPathSchedule schedule, Map<? extends ActivityData, DurationDistribution> distributions) {
+            List<ActivityData> activities = schedule.getActivities();
+            activityCount = activities.size();
+            fixedDurations = new int[activityCount];
+            this.distributions = new DurationDistribution[activityCount];
+            prerequisiteOffsets = new int[activityCount + 1];
+            successorOffsets = new int[activityCount + 1];
+            for (int i = 0; i < activityCount; i++) {
+                fixedDurations[i] = activities.get(i).getDuration();
+                this.distributions[i] = distributions.get(activities.get(i));
+                prerequisiteOffsets[i + 1] = prerequisiteOffsets[i] + schedule.getPrerequisiteIndices(i).length;
+                successorOffsets[i + 1] = successorOffsets[i] + schedule.getSuccessorIndices(i).length;
+            }
+
+            prerequisites = new int[prerequisiteOffsets[activityCount]];
+            successors = new int[successorOffsets[activityCount]];
+            for (int i = 0; i < activityCount; i++) {
+                int[] activityPrerequisites = schedule.getPrerequisiteIndices(i);
+                System.arraycopy(activityPrerequisites, 0, prerequisites, prerequisiteOffsets[i], activityPrerequisites.length);
+                int[] activitySuccessors = schedule.getSuccessorIndices(i);
+                System.arraycopy(activitySuccessors, 0, successors, successorOffsets[i], activitySuccessors.length);
+            }
+        }
+
+    }
+
+    /**
+     * Completion times and critical activity counts of a batch of iterations.
+     */
+    private static final class Results {
+
+        private final CompletionHistogram completions = new CompletionHistogram();
+        private final long[] criticalCounts;
+
+        private Results(int activityCount) {
+            criticalCounts = new long[activityCount];
+        }
+
+        private Results merge(Results other) {
+            completions.merge(other.completions);
+            for (int i = 0; i < criticalCounts.length; i++) {
+                criticalCounts[i] += other.criticalCounts[i];
+            }
+            return this;
+        }
+
+    }
+
+    /**
+     * Runs a range of iterations, splitting the range in half until it is no bigger than one batch.
+     */
+    private static final class SimulationTask extends RecursiveTask<Results> {
+
+        private final Network network;
+        private final int iterations;
+        private final SplittableRandom random;
+
+        private SimulationTask(Network network, int iterations, SplittableRandom random) {
+            this.network = network;
+            this.iterations = iterations;
+            this.random = random;
+        }
+
+        @Override
+        protected Results compute() {
+            if (iterations <= ITERATIONS_PER_BATCH) {
+                return runBatch();
+            }
+
+            // Split the generator before forking, so the results only depend on the seed...
+            int firstHalf = iterations / 2;
+            SimulationTask first = new SimulationTask(network, firstHalf, random.split());
+            SimulationTask second = new SimulationTask(network, iterations - firstHalf, random);
+            first.fork();
+            Results secondResults = second.compute();
+            return first.join().merge(secondResults);
+        }
+
+        private Results runBatch() {
+            Results results = new Results(network.activityCount);
+            int[] durations = new int[network.activityCount];
+            int[] earliestEnds = new int[network.activityCount];
+            int[] latestStarts = new int[network.activityCount];
+
+            for (int iteration = 0; iteration < iterations; iteration++) {
+                int completion = 0;
+                for (int i = 0; i < network.activityCount; i++) {
+                    DurationDistribution distribution = network.distributions[i];
+                    int duration = distribution == null ? network.fixedDurations[i] : distribution.sample(random);
+
+                    int earliestStart = 0;
+                    for (int p = network.prerequisiteOffsets[i]; p < network.prerequisiteOffsets[i + 1]; p++) {
+                        earliestStart = max(earliestStart, earliestEnds[network.prerequisites[p]]);
+                    }
+
+                    durations[i] = duration;
+                    earliestEnds[i] = earliestStart + duration;
+                    completion = max(completion, earliestEnds[i]);
+                }
+
+                for (int i = network.activityCount - 1; i >= 0; i--) {
+                    int latestEnd = completion;
+                    for (int s = network.successorOffsets[i]; s < network.successorOffsets[i + 1]; s++) {
+                        latestEnd = min(latestEnd, latestStarts[network.successors[s]]);
+                    }
+
+                    latestStarts[i] = latestEnd - durations[i];
+                    if (latestEnd == earliestEnds[i]) {
+                        results.criticalCounts[i]++;
+                    }
+                }
+
+                results.completions.record(completion);
+            }
+
+            return results;
+        }
+
+    }
+
+    private static final class SimulatedRiskProfile implements RiskProfile {
+
+        private final List<ActivityData> activities;
+        private final int iterations;
+        private final CompletionHistogram completions;
+        private final double[] criticalityIndices;
+
+        private SimulatedRiskProfile(List<ActivityData> activities, int iterations, Results results) {
+            this.activities = activities;
+            this.iterations = iterations;
+            this.completions = results.completions;
+            this.criticalityIndices = new double[activities.size()];
+            for (int i = 0; i < criticalityIndices.length; i++) {
+                criticalityIndices[i] = (double) results.criticalCounts[i] / iterations;
+            }
+        }
+
+        @Override
+        public int getIterations() {
+            return iterations;
+        }
+
+        @Override
+        public int getCompletionQuantile(double fraction) {
+            return completions.getQuantile(fraction);
+        }
+
+        @Override
+        public double getMeanCompletion() {
+            return completions.getMean();
+        }
+
+        @Override
+        public List<ActivityData> getActivities() {
+            return activities;
+        }
+
+        @Override
+        public double[] getCriticalityIndices() {
+            return criticalityIndices;
+        }
+
+    }
+
+}
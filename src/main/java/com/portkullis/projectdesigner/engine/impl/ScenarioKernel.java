@@ -0,0 +1,176 @@
+package com.portkullis.projectdesigner.engine.impl;
+
+import com.portkullis.projectdesigner.exception.ProjectDesignerRuntimeException;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * Forward pass of the critical path method over many duration scenarios of one fixed set of activities, such as the
+ * utility data of a project. The prerequisites are sorted and flattened into index arrays once, and every calculation
+ * then evaluates a whole block of scenarios per activity.
+ * <p>
+ * Within a block, each activity keeps one row of values with one element per scenario, and every step combines two
+ * rows element by element at the same index. Those inner loops have no branches and no dependencies between
+ * elements, so the JIT compiler can turn them into SIMD instructions that process several scenarios at once.
+ *
+ * @param <A> the activity type.
+ */
+public final class ScenarioKernel<A> {
+
+    private static final int SCENARIOS_PER_BLOCK = 128;
+
+    private final TopologicalOrder<A> order;
+    private final int[][] prerequisites;
+
+    private ScenarioKernel(TopologicalOrder<A> order, int[][] prerequisites) {
+        this.order = order;
+        this.prerequisites = prerequisites;
+    }
+
+    /**
+     * Creates a kernel for a set of activities. Prerequisites that are not in the given collection are ignored.
+     *
+     * @param activities    the activities.
+     * @param prerequisites function that returns the direct prerequisites of an activity.
+     * @param <A>           the activity type.
+     * @return the kernel.
+     * @throws com.portkullis.projectdesigner.exception.CyclicDependencyException if the prerequisites contain a cycle.
+     */
+    public static <A> ScenarioKernel<A> of(Collection<A> activities, Function<A, ? extends Collection<A>> prerequisites) {
+        TopologicalOrder<A> order = TopologicalOrder.of(activities, prerequisites);
+        int[][] prerequisiteIndices = new int[order.size()][];
+        for (int i = 0; i < order.size(); i++) {
+            prerequisiteIndices[i] = prerequisites.apply(order.getActivities().get(i)).stream()
+                    .mapToInt(order::indexOf)
+                    .filter(p -> p >= 0)
+                    .distinct()
+                    .toArray();
+        }
+        return new ScenarioKernel<>(order, prerequisiteIndices);
+    }
+
+    /**
+     * Returns the activities in the order used to index the durations of each scenario.
+     *
+     * @return the activities in topological order.
+     */
+    public List<A> getActivities() {
+        return order.getActivities();
+    }
+
+    /**
+     * Returns the index of an activity in the durations of each scenario.
+     *
+     * @param activity the activity.
+     * @return the index of the activity, or -1 if the activity is not part of the kernel.
+     */
+    public int indexOf(A activity) {
+        return order.indexOf(activity);
+    }
+
+    /**
+     * Calculates the time at which all activities are complete in each scenario.
+     *
+     * @param durations the activity durations of each scenario, indexed by scenario and then by activity index.
+     * @return the completion time of each scenario.
+     */
+    public int[] calculateCompletionTimes(int[][] durations) {
+        return calculate(durations, null);
+    }
+
+    /**
+     * Calculates the earliest end time of every activity in each scenario.
+     *
+     * @param durations the activity durations of each scenario, indexed by scenario and then by activity index.
+     * @return the earliest end times, indexed by scenario and then by activity index.
+     */
+    public int[][] calculateEarliestEnds(int[][] durations) {
+        int[][] earliestEnds = new int[durations.length][order.size()];
+        calculate(durations, earliestEnds);
+        return earliestEnds;
+    }
+
+    private int[] calculate(int[][] durations, int[][] earliestEnds) {
+        for (int[] scenario : durations) {
+            if (scenario.length != order.size()) {
+                throw new ProjectDesignerRuntimeException("Expected " + order.size() + " durations per scenario, but found "
+                        + scenario.length);
+            }
+        }
+
+        int[] completions = new int[durations.length];
+        int[][] endRows = new int[order.size()][SCENARIOS_PER_BLOCK];
+        int[] completionRow = new int[SCENARIOS_PER_BLOCK];
+        int[] latestEndRow = new int[SCENARIOS_PER_BLOCK];
+
+        for (int firstScenario = 0; firstScenario < durations.length; firstScenario += SCENARIOS_PER_BLOCK) {
+            int blockSize = min(SCENARIOS_PER_BLOCK, durations.length - firstScenario);
+
+            // Transpose the durations of the block into the rows, so every later step works along a row...
+            for (int s = 0; s < blockSize; s++) {
+                int[] scenario = durations[firstScenario + s];
+                for (int i = 0; i < scenario.length; i++) {
+                    endRows[i][s] = scenario[i];
+                }
+            }
+
+            Arrays.fill(completionRow, 0);
+            for (int i = 0; i < endRows.length; i++) {
+                int[] endRow = endRows[i];
+                int[] activityPrerequisites = prerequisites[i];
+                if (activityPrerequisites.length > 0) {
+                    addLatestEnd(endRow, endRows, activityPrerequisites, latestEndRow, blockSize);
+                }
+                for (int s = 0; s < blockSize; s++) {
+                    completionRow[s] = max(completionRow[s], endRow[s]);
+                }
+            }
+
+            System.arraycopy(completionRow, 0, completions, firstScenario, blockSize);
+            if (earliestEnds != null) {
+                for (int s = 0; s < blockSize; s++) {
+                    int[] scenario = earliestEnds[firstScenario + s];
+                    for (int i = 0; i < scenario.length; i++) {
+                        scenario[i] = endRows[i][s];
+                    }
+                }
+            }
+        }
+
+        return completions;
+    }
+
+    /**
+     * Adds the latest end of the prerequisites to the durations in a row, turning them into earliest end times.
+     */
+    private static void addLatestEnd(int[] row, int[][] endRows, int[] prerequisites, int[] latestEnds, int blockSize) {
+        int[] first = endRows[prerequisites[0]];
+        if (prerequisites.length == 1) {
+            for (int s = 0; s < blockSize; s++) {
+                row[s] += first[s];
+            }
+            return;
+        }
+
+        int[] second = endRows[prerequisites[1]];
+        for (int s = 0; s < blockSize; s++) {
+            latestEnds[s] = max(first[s], second[s]);
+        }
+        for (int p = 2; p < prerequisites.length; p++) {
+            int[] prerequisite = endRows[prerequisites[p]];
+            for (int s = 0; s < blockSize; s++) {
+                latestEnds[s] = max(latestEnds[s], prerequisite[s]);
+            }
+        }
+        for (int s = 0; s < blockSize; s++) {
+            row[s] += latestEnds[s];
+        }
+    }
+
+}
@@ -0,0 +1,134 @@
+package com.portkullis.projectdesigner.engine.impl;
+
+import com.portkullis.projectdesigner.exception.CyclicDependencyException;
+
+import java.util.*;
+import java.util.function.Function;
+
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * A set of activities in topological order, so that every activity appears after all of its prerequisites. Creating
+ * the order validates the prerequisites in O(V + E) time, and fails with the offending cycle if there is one.
+ *
+ * @param <A> the activity type.
+ */
+public final class TopologicalOrder<A> {
+
+    private final List<A> activities;
+    private final Map<A, Integer> indices;
+
+    private TopologicalOrder(List<A> activities, Map<A, Integer> indices) {
+        this.activities = unmodifiableList(activities);
+        this.indices = indices;
+    }
+
+    /**
+     * Sorts activities into topological order. Prerequisites that are not in the given collection are ignored.
+     *
+     * @param activities    the activities to sort.
+     * @param prerequisites function that returns the direct prerequisites of an activity.
+     * @param <A>           the activity type.
+     * @return the activities in topological order.
+     * @throws CyclicDependencyException if the prerequisites contain a cycle.
+     */
+    public static <A> TopologicalOrder<A> of(Collection<A> activities, Function<A, ? extends Collection<A>> prerequisites) {
+        Map<A, Integer> remainingPrerequisites = new HashMap<>();
+        Map<A, List<A>> successors = new HashMap<>();
+        activities.forEach(a -> {
+            remainingPrerequisites.put(a, 0);
+            successors.put(a, new ArrayList<>());
+        });
+
+        for (A activity : activities) {
+            for (A prerequisite : prerequisites.apply(activity)) {
+                List<A> prerequisiteSuccessors = successors.get(prerequisite);
+                if (prerequisiteSuccessors != null) {
+                    prerequisiteSuccessors.add(activity);
+                    remainingPrerequisites.merge(activity, 1, Integer::sum);
+                }
+            }
+        }
+
+        Deque<A> readyActivities = new ArrayDeque<>();
+        activities.stream()
+                .filter(a -> remainingPrerequisites.get(a) == 0)
+                .forEach(readyActivities::add);
+
+        List<A> order = new ArrayList<>(activities.size());
+        Map<A, Integer> indices = new HashMap<>();
+        while (!readyActivities.isEmpty()) {
+            A activity = readyActivities.poll();
+            indices.put(activity, order.size());
+            order.add(activity);
+            for (A successor : successors.get(activity)) {
+                if (remainingPrerequisites.merge(successor, -1, Integer::sum) == 0) {
+                    readyActivities.add(successor);
+                }
+            }
+        }
+
+        if (order.size() != remainingPrerequisites.size()) {
+            throw new CyclicDependencyException(findCycle(remainingPrerequisites, prerequisites));
+        }
+
+        return new TopologicalOrder<>(order, indices);
+    }
+
+    /**
+     * Finds a cycle among the activities that could not be sorted. Every one of them has at least one prerequisite
+     * that could not be sorted either, so walking back through those prerequisites must eventually repeat an activity.
+     */
+    private static <A> List<Object> findCycle(Map<A, Integer> remainingPrerequisites, Function<A, ? extends Collection<A>> prerequisites) {
+        A activity = remainingPrerequisites.entrySet().stream()
+                .filter(e -> e.getValue() > 0)
+                .map(Map.Entry::getKey)
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+
+        Map<A, Integer> walkPositions = new HashMap<>();
+        List<Object> walk = new ArrayList<>();
+        while (!walkPositions.containsKey(activity)) {
+            walkPositions.put(activity, walk.size());
+            walk.add(activity);
+            activity = prerequisites.apply(activity).stream()
+                    .filter(p -> remainingPrerequisites.getOrDefault(p, 0) > 0)
+                    .findFirst()
+                    .orElseThrow(IllegalStateException::new);
+        }
+
+        // The walk went from each activity to one of its prerequisites, so reverse it to list prerequisites first...
+        List<Object> cycle = new ArrayList<>(walk.subList(walkPositions.get(activity), walk.size()));
+        Collections.reverse(cycle);
+        return cycle;
+    }
+
+    /**
+     * Returns the activities in topological order.
+     *
+     * @return the sorted activities.
+     */
+    public List<A> getActivities() {
+        return activities;
+    }
+
+    /**
+     * Returns the position of an activity in the order.
+     *
+     * @param activity the activity.
+     * @return the position of the activity, or -1 if the activity is not part of the order.
+     */
+    public int indexOf(A activity) {
+        return indices.getOrDefault(activity, -1);
+    }
+
+    /**
+     * Returns the number of activities in the order.
+     *
+     * @return the number of activities.
+     */
+    public int size() {
+        return activities.size();
+    }
+
+}
@@ -6,10 +6,10 @@ import com.portkullis.projectdesigner.model.EdgeProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
-
-import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toSet;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Implementation of a project visualization engine.
@@ -18,8 +18,109 @@ public class VisualizationEngineImpl implements VisualizationEngine {
 
     private static final Logger LOG = LoggerFactory.getLogger(VisualizationEngine.class);
 
+    private static final int DEFAULT_CACHE_SIZE = 16;
+
+    private final ForkJoinPool simplificationPool;
+    private final ArrowDiagramCache diagramCache;
+
+    /**
+     * Constructs an engine that simplifies arrow diagrams on the calling thread.
+     */
+    public VisualizationEngineImpl() {
+        this(null);
+    }
+
+    /**
+     * Constructs an engine that simplifies the independent regions of arrow diagrams in parallel.
+     *
+     * @param simplificationPool the pool on which to simplify arrow diagram regions.
+     */
+    public VisualizationEngineImpl(ForkJoinPool simplificationPool) {
+        this(simplificationPool, new ArrowDiagramCache(DEFAULT_CACHE_SIZE));
+    }
+
+    /**
+     * Constructs an engine that reuses simplified arrow diagrams from the given cache whenever the structure of the
+     * project has not changed.
+     *
+     * @param simplificationPool the pool on which to simplify arrow diagram regions, or {@code null} to simplify on
+     *                           the calling thread.
+     * @param diagramCache       the cache of simplified arrow diagrams, or {@code null} to always simplify.
+     */
+    public VisualizationEngineImpl(ForkJoinPool simplificationPool, ArrowDiagramCache diagramCache) {
+        this.simplificationPool = simplificationPool;
+        this.diagramCache = diagramCache;
+    }
+
     @Override
     public void visualizeProject(ProjectData project) {
+        // Fail fast on cyclic prerequisites before building the arrow diagram...
+        TopologicalOrder.of(project.getActivities(), ActivityData::getPrerequisites);
+
+        if (diagramCache == null) {
+            visualizeGraph(createArrowDiagram(project));
+            return;
+        }
+
+        List<ActivityData> activities = new ArrayList<>(project.getActivities());
+        Map<ActivityData, Integer> activityPositions = new HashMap<>();
+        for (int i = 0; i < activities.size(); i++) {
+            activityPositions.put(activities.get(i), i);
+        }
+
+        String fingerprint = getFingerprint(activities, activityPositions);
+        CompactGraph<Integer> cachedDiagram = diagramCache.get(fingerprint, activities.size());
+        if (cachedDiagram != null) {
+            LOG.debug("Reusing cached arrow diagram: {}", fingerprint);
+            visualizeGraph(cachedDiagram.mapEdgeData(activities::get));
+        } else {
+            CompactGraph<ActivityData> diagram = createArrowDiagram(project);
+            diagramCache.put(fingerprint, diagram.mapEdgeData(activityPositions::get));
+            visualizeGraph(diagram);
+        }
+    }
+
+    /**
+     * Calculates a fingerprint of the structure of a project. Two projects have the same fingerprint if they list the
+     * same number of activities, and the activities at each position have prerequisites at the same positions. Such
+     * projects always result in the same arrow diagram, whatever the durations of their activities.
+     */
+    private static String getFingerprint(List<ActivityData> activities, Map<ActivityData, Integer> activityPositions) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new ProjectDesignerRuntimeException("Unable to fingerprint project: " + e.getMessage());
+        }
+
+        updateDigest(digest, activities.size());
+        for (ActivityData activity : activities) {
+            int[] prerequisitePositions = activity.getPrerequisites().stream()
+                    .mapToInt(p -> activityPositions.getOrDefault(p, -1))
+                    .sorted()
+                    .toArray();
+
+            updateDigest(digest, prerequisitePositions.length);
+            for (int prerequisitePosition : prerequisitePositions) {
+                updateDigest(digest, prerequisitePosition);
+            }
+        }
+
+        StringBuilder fingerprint = new StringBuilder();
+        for (byte b : digest.digest()) {
+            fingerprint.append(String.format("%02x", b));
+        }
+        return fingerprint.toString();
+    }
+
+    private static void updateDigest(MessageDigest digest, int value) {
+        digest.update((byte) (value >>> 24));
+        digest.update((byte) (value >>> 16));
+        digest.update((byte) (value >>> 8));
+        digest.update((byte) value);
+    }
+
+    private CompactGraph<ActivityData> createArrowDiagram(ProjectData project) {
         Graph<ActivityData> graph = new Graph<>();
 
         IdGenerator nodeIdGenerator = new IdGenerator();
@@ -35,11 +136,17 @@ public class VisualizationEngineImpl implements VisualizationEngine {
 
         createProjectFinishEdges(graph, nodeIdGenerator);
 
-        graph.simplifyDummies();
+        if (simplificationPool != null) {
+            graph.simplifyDummies(simplificationPool);
+        } else {
+            graph.simplifyDummies();
+        }
+
+        CompactGraph<ActivityData> compactGraph = CompactGraph.of(graph);
 
-        labelNodes(graph);
+        labelNodes(compactGraph);
 
-        visualizeGraph(graph);
+        return compactGraph;
     }
 
     private static Node createGraphNode(Graph<ActivityData> graph, IdGenerator nodeIdGenerator, String start2) {
@@ -87,56 +194,51 @@ public class VisualizationEngineImpl implements VisualizationEngine {
         }
     }
 
-    private static void labelNodes(Graph<ActivityData> graph) {
-        Node start;
-        Set<Node> startNodes = graph.getStartNodes();
-        if (startNodes.size() != 1) {
-            throw new ProjectDesignerRuntimeException("A project must have exactly one starting activity. Project has " + startNodes.size() + " start activities.");
+    private static void labelNodes(CompactGraph<ActivityData> graph) {
+        int nodeCount = graph.getNodeCount();
+
+        int startNodeCount = 0;
+        int terminalNodeCount = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            if (graph.getInEdgeOffset(node) == graph.getInEdgeOffset(node + 1)) {
+                startNodeCount++;
+            }
+            if (graph.getOutEdgeOffset(node) == graph.getOutEdgeOffset(node + 1)) {
+                terminalNodeCount++;
+            }
+        }
+
+        if (startNodeCount != 1) {
+            throw new ProjectDesignerRuntimeException("A project must have exactly one starting activity. Project has " + startNodeCount + " start activities.");
         }
-        startNodes.forEach(n -> n.setLabel("Start"));
-        start = startNodes.iterator().next();
+        graph.getNode(0).setLabel("Start");
 
+        // Nodes are in topological order, so every node is labeled after all the nodes that lead into it...
         IdGenerator labelGenerator = new IdGenerator();
-        Set<Long> labeledNodes = new HashSet<>();
-        labeledNodes.add(start.getId());
-        labelChildrenNodes(graph, start, labelGenerator, labeledNodes);
+        for (int node = 1; node < nodeCount; node++) {
+            graph.getNode(node).setLabel(labelGenerator.getNextLabel());
+        }
 
-        Set<Node> terminalNodes = graph.getTerminalNodes();
-        if (terminalNodes.size() != 1) {
+        if (terminalNodeCount != 1) {
             throw new ProjectDesignerRuntimeException("A project must have exactly one ending activity.");
         }
-        terminalNodes.forEach(n -> n.setLabel("End"));
-    }
-
-    private static void labelChildrenNodes(Graph<ActivityData> graph, Node start, IdGenerator labelGenerator, Set<Long> labeledNodes) {
-        List<Node> exits = graph.getEdges().stream()
-                .filter(e -> e.getStart().equals(start))
-                .map(Edge::getEnd)
-                .collect(toList());
-
-        exits.forEach(n -> {
-            Set<Long> sources = graph.getEdges().stream()
-                    .filter(e -> e.getEnd().equals(n))
-                    .map(Edge::getStart)
-                    .map(Node::getId)
-                    .collect(toSet());
-            if (labeledNodes.containsAll(sources) && !labeledNodes.contains(n.getId())) {
-                n.setLabel(labelGenerator.getNextLabel());
-                labeledNodes.add(n.getId());
-            }
-        });
-        exits.forEach(n -> labelChildrenNodes(graph, n, labelGenerator, labeledNodes));
+        graph.getNode(nodeCount - 1).setLabel("End");
     }
 
     @Override
     public void visualizeGraph(Graph<ActivityData> graph) {
-        FloatCalculator floatCalculator = new FloatCalculator(graph);
-        Map<Node, Integer> nodeFloatMap = new HashMap<>();
+        visualizeGraph(CompactGraph.of(graph));
+    }
+
+    private void visualizeGraph(CompactGraph<ActivityData> graph) {
+        int[] edgeFloats = new FloatCalculator(graph).getTotalFloats();
+        int[] nodeFloats = new int[graph.getNodeCount()];
+        Arrays.fill(nodeFloats, Integer.MAX_VALUE);
 
-        int maxTotalFloat = graph.getEdges().stream()
-                .mapToInt(floatCalculator::getTotalFloat)
-                .max()
-                .orElse(0);
+        int maxTotalFloat = 0;
+        for (int edgeFloat : edgeFloats) {
+            maxTotalFloat = Math.max(maxTotalFloat, edgeFloat);
+        }
         int highThreshold = maxTotalFloat / 9;
         int medThreshold = maxTotalFloat / 3;
 
@@ -144,15 +246,17 @@ public class VisualizationEngineImpl implements VisualizationEngine {
             StringBuilder buffer = new StringBuilder();
             buffer.append("digraph {\n");
             buffer.append("    rankdir = LR\n");
-            graph.getEdges().forEach(e -> {
-                int totalFloat = floatCalculator.getTotalFloat(e);
+            for (int edge = 0; edge < graph.getEdgeCount(); edge++) {
+                int totalFloat = edgeFloats[edge];
+                int start = graph.getEdgeStart(edge);
+                int end = graph.getEdgeEnd(edge);
 
-                nodeFloatMap.put(e.getStart(), Math.min(totalFloat, nodeFloatMap.getOrDefault(e.getStart(), Integer.MAX_VALUE)));
-                nodeFloatMap.put(e.getEnd(), Math.min(totalFloat, nodeFloatMap.getOrDefault(e.getEnd(), Integer.MAX_VALUE)));
+                nodeFloats[start] = Math.min(totalFloat, nodeFloats[start]);
+                nodeFloats[end] = Math.min(totalFloat, nodeFloats[end]);
 
-                buffer.append("    ").append(e.getStart().getLabel()).append(" -> ").append(e.getEnd().getLabel());
-                if (e.getData().isPresent()) {
-                    EdgeProperties ep = e.getData().get().getEdgeProperties();
+                buffer.append("    ").append(graph.getNode(start).getLabel()).append(" -> ").append(graph.getNode(end).getLabel());
+                if (!graph.isDummy(edge)) {
+                    EdgeProperties ep = graph.getEdgeData(edge).getEdgeProperties();
                     buffer.append(" [ label = \"")
                             .append(ep.getLabel())
                             .append("\"; ");
@@ -170,11 +274,11 @@ public class VisualizationEngineImpl implements VisualizationEngine {
                     buffer.append(" color = green; ]");
                 }
                 buffer.append(";\n");
-            });
+            }
 
-            graph.getNodes().forEach(n -> {
-                int totalFloat = nodeFloatMap.getOrDefault(n, 0);
-                buffer.append("    ").append(n.getLabel());
+            for (int node = 0; node < graph.getNodeCount(); node++) {
+                int totalFloat = nodeFloats[node] == Integer.MAX_VALUE ? 0 : nodeFloats[node];
+                buffer.append("    ").append(graph.getNode(node).getLabel());
                 if (totalFloat == 0) {
                     buffer.append(" [ color = black; penwidth = 2; ]");
                 } else if (totalFloat <= highThreshold) {
@@ -185,7 +289,7 @@ public class VisualizationEngineImpl implements VisualizationEngine {
                     buffer.append(" [ color = green; ]");
                 }
                 buffer.append(";\n");
-            });
+            }
             buffer.append("}");
 
             Process dot = Runtime.getRuntime().exec("dot -Tpdf -o output.pdf");
@@ -0,0 +1,37 @@
+package com.portkullis.projectdesigner.exception;
+
+import java.util.List;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Runtime exception thrown when the prerequisites of a project's activities contain a cycle.
+ */
+public class CyclicDependencyException extends ProjectDesignerRuntimeException {
+
+    private final List<Object> cycle;
+
+    /**
+     * Constructs the exception.
+     *
+     * @param cycle the activities that form the cycle, with each activity being a prerequisite of the next and the
+     *              last activity being a prerequisite of the first.
+     */
+    public CyclicDependencyException(List<Object> cycle) {
+        super("Cyclic prerequisites found: " + cycle.stream().map(String::valueOf).collect(joining(" -> "))
+                + " -> " + cycle.get(0));
+        this.cycle = unmodifiableList(cycle);
+    }
+
+    /**
+     * Returns the activities that form the cycle, with each activity being a prerequisite of the next and the last
+     * activity being a prerequisite of the first.
+     *
+     * @return the activities in the cycle.
+     */
+    public List<Object> getCycle() {
+        return cycle;
+    }
+
+}
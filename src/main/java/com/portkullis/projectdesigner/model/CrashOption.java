@@ -0,0 +1,69 @@
+package com.portkullis.projectdesigner.model;
+
+import com.portkullis.projectdesigner.exception.ProjectDesignerRuntimeException;
+
+import java.util.Objects;
+
+/**
+ * Describes how far the duration of an activity can be shortened by adding resources, and what that costs.
+ */
+public class CrashOption {
+
+    private final int crashDuration;
+    private final double costPerDay;
+
+    /**
+     * Constructs the crash option.
+     *
+     * @param crashDuration the shortest duration to which the activity can be crashed.
+     * @param costPerDay    the cost of shortening the activity by one duration unit.
+     */
+    public CrashOption(int crashDuration, double costPerDay) {
+        if (crashDuration < 0 || !(costPerDay >= 0)) {
+            throw new ProjectDesignerRuntimeException("Invalid crash option: " + crashDuration + " at " + costPerDay);
+        }
+        this.crashDuration = crashDuration;
+        this.costPerDay = costPerDay;
+    }
+
+    @Override
+    public String toString() {
+        return "CrashOption{" +
+                "crashDuration=" + crashDuration +
+                ", costPerDay=" + costPerDay +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CrashOption that = (CrashOption) o;
+        return crashDuration == that.crashDuration &&
+                Double.compare(that.costPerDay, costPerDay) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(crashDuration, costPerDay);
+    }
+
+    /**
+     * Returns the shortest duration to which the activity can be crashed.
+     *
+     * @return the crash duration.
+     */
+    public int getCrashDuration() {
+        return crashDuration;
+    }
+
+    /**
+     * Returns the cost of shortening the activity by one duration unit.
+     *
+     * @return the cost per duration unit.
+     */
+    public double getCostPerDay() {
+        return costPerDay;
+    }
+
+}
@@ -0,0 +1,193 @@
+package com.portkullis.projectdesigner.model;
+
+import com.portkullis.projectdesigner.exception.ProjectDesignerRuntimeException;
+
+import java.util.SplittableRandom;
+
+/**
+ * Probability distribution of the duration of an activity, used to simulate schedule risk. Sampling does not allocate
+ * any objects, so it can be called from tight simulation loops.
+ */
+public abstract class DurationDistribution {
+
+    private static final double PERT_SHAPE = 4.0;
+
+    private final double minimum;
+    private final double maximum;
+
+    private DurationDistribution(double minimum, double maximum) {
+        if (minimum < 0 || maximum < minimum) {
+            throw new ProjectDesignerRuntimeException("Invalid duration range: " + minimum + " to " + maximum);
+        }
+        this.minimum = minimum;
+        this.maximum = maximum;
+    }
+
+    /**
+     * Creates a triangular distribution.
+     *
+     * @param minimum    the shortest possible duration.
+     * @param mostLikely the most likely duration.
+     * @param maximum    the longest possible duration.
+     * @return the distribution.
+     */
+    public static DurationDistribution triangular(double minimum, double mostLikely, double maximum) {
+        return new Triangular(minimum, mostLikely, maximum);
+    }
+
+    /**
+     * Creates a PERT distribution; that is, a beta distribution scaled to the given range whose mode is the most
+     * likely duration.
+     *
+     * @param minimum    the shortest possible duration.
+     * @param mostLikely the most likely duration.
+     * @param maximum    the longest possible duration.
+     * @return the distribution.
+     */
+    public static DurationDistribution pert(double minimum, double mostLikely, double maximum) {
+        checkMostLikely(minimum, mostLikely, maximum);
+        double range = maximum - minimum;
+        if (range == 0) {
+            return new Beta(minimum, maximum, 1, 1);
+        }
+        return new Beta(minimum, maximum,
+                1 + PERT_SHAPE * (mostLikely - minimum) / range,
+                1 + PERT_SHAPE * (maximum - mostLikely) / range);
+    }
+
+    /**
+     * Creates a beta distribution scaled to the given range.
+     *
+     * @param minimum the shortest possible duration.
+     * @param maximum the longest possible duration.
+     * @param alpha   the first shape parameter.
+     * @param beta    the second shape parameter.
+     * @return the distribution.
+     */
+    public static DurationDistribution beta(double minimum, double maximum, double alpha, double beta) {
+        if (!(alpha > 0) || !(beta > 0)) {
+            throw new ProjectDesignerRuntimeException("Invalid beta distribution shape: " + alpha + ", " + beta);
+        }
+        return new Beta(minimum, maximum, alpha, beta);
+    }
+
+    /**
+     * Draws a duration from the distribution, rounded to whole duration units.
+     *
+     * @param random the source of randomness.
+     * @return the sampled duration.
+     */
+    public int sample(SplittableRandom random) {
+        return (int) Math.round(minimum + (maximum - minimum) * sampleFraction(random));
+    }
+
+    /**
+     * Draws a value between zero and one from the shape of the distribution.
+     *
+     * @param random the source of randomness.
+     * @return the sampled fraction of the duration range.
+     */
+    abstract double sampleFraction(SplittableRandom random);
+
+    private static void checkMostLikely(double minimum, double mostLikely, double maximum) {
+        if (mostLikely < minimum || mostLikely > maximum) {
+            throw new ProjectDesignerRuntimeException("Most likely duration " + mostLikely + " is outside range: "
+                    + minimum + " to " + maximum);
+        }
+    }
+
+    private static final class Triangular extends DurationDistribution {
+
+        private final double mode;
+
+        private Triangular(double minimum, double mostLikely, double maximum) {
+            super(minimum, maximum);
+            checkMostLikely(minimum, mostLikely, maximum);
+            this.mode = maximum == minimum ? 0 : (mostLikely - minimum) / (maximum - minimum);
+        }
+
+        @Override
+        double sampleFraction(SplittableRandom random) {
+            double u = random.nextDouble();
+            return u < mode ? Math.sqrt(u * mode) : 1 - Math.sqrt((1 - u) * (1 - mode));
+        }
+
+    }
+
+    private static final class Beta extends DurationDistribution {
+
+        private final GammaSampler alpha;
+        private final GammaSampler beta;
+
+        private Beta(double minimum, double maximum, double alpha, double beta) {
+            super(minimum, maximum);
+            this.alpha = new GammaSampler(alpha);
+            this.beta = new GammaSampler(beta);
+        }
+
+        @Override
+        double sampleFraction(SplittableRandom random) {
+            double x = alpha.sample(random);
+            double y = beta.sample(random);
+            return x / (x + y);
+        }
+
+    }
+
+    /**
+     * Samples a gamma distribution with unit scale, using the method of Marsaglia and Tsang. Shapes below one are
+     * sampled with the shape increased by one, and the result scaled back down.
+     */
+    private static final class GammaSampler {
+
+        private final double d;
+        private final double c;
+        private final double inverseShape;
+
+        private GammaSampler(double shape) {
+            this.inverseShape = shape < 1 ? 1 / shape : 0;
+            this.d = (shape < 1 ? shape + 1 : shape) - 1.0 / 3;
+            this.c = 1 / Math.sqrt(9 * d);
+        }
+
+        private double sample(SplittableRandom random) {
+            double value = sampleWithShapeAtLeastOne(random);
+            return inverseShape == 0 ? value : value * Math.pow(random.nextDouble(), inverseShape);
+        }
+
+        private double sampleWithShapeAtLeastOne(SplittableRandom random) {
+            while (true) {
+                double x = sampleNormal(random);
+                double v = 1 + c * x;
+                if (v <= 0) {
+                    continue;
+                }
+                v = v * v * v;
+                double u = random.nextDouble();
+                double xSquared = x * x;
+
+                // The squeeze accepts most samples without taking any logarithms...
+                if (u < 1 - 0.0331 * xSquared * xSquared
+                        || Math.log(u) < 0.5 * xSquared + d - d * v + d * Math.log(v)) {
+                    return d * v;
+                }
+            }
+        }
+
+        /**
+         * Samples a standard normal distribution, using the polar method.
+         */
+        private static double sampleNormal(SplittableRandom random) {
+            while (true) {
+                double u = 2 * random.nextDouble() - 1;
+                double v = 2 * random.nextDouble() - 1;
+                double s = u * u + v * v;
+                if (s > 0 && s < 1) {
+                    return u * Math.sqrt(-2 * Math.log(s) / s);
+                }
+            }
+        }
+
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.portkullis.projectdesigner.adapter
 
+import com.portkullis.projectdesigner.exception.CyclicDependencyException
 import com.portkullis.projectdesigner.model.Activity
 import com.portkullis.projectdesigner.model.Plan
 import com.portkullis.projectdesigner.model.Project
@@ -67,4 +68,19 @@ class ProjectDataAdapterTest extends Specification {
         project.plans[thePlan].activityAssignments[activity1].containsAll([dev1, dev2])
     }
 
+    def "Cyclic prerequisites should be reported when the schedule is calculated"() {
+        given:
+        def activity2 = new Activity(2, "Activity 2", 5)
+        def activity3 = new Activity(3, "Activity 3", 5, activity2)
+        activity2.prerequisites.add(activity3)
+        project.utilityData.addAll([activity2, activity3])
+
+        when:
+        adapter.getEarliestStart(activity3)
+
+        then:
+        def e = thrown(CyclicDependencyException)
+        e.getCycle() as Set == [activity2, activity3] as Set
+    }
+
 }
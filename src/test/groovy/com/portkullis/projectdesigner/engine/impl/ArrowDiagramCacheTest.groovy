@@ -0,0 +1,91 @@
+package com.portkullis.projectdesigner.engine.impl
+
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+class ArrowDiagramCacheTest extends Specification {
+
+    def static A = new Node(1, "Start")
+    def static B = new Node(2, "A")
+    def static C = new Node(3, "End")
+
+    CompactGraph<Integer> diagram
+
+    void setup() {
+        def graph = new Graph<Integer>()
+        graph.getEdges().addAll([new Edge<>(A, B, 0), new Edge<>(B, C, 1), new Edge<>(A, C)])
+        diagram = CompactGraph.of(graph)
+    }
+
+    def "The least recently used diagram should be evicted when the cache is full"() {
+        given:
+        def cache = new ArrowDiagramCache(2)
+
+        when:
+        cache.put("first", diagram)
+        cache.put("second", diagram)
+        cache.get("first", 2)
+        cache.put("third", diagram)
+
+        then:
+        cache.get("first", 2) != null
+        cache.get("second", 2) == null
+        cache.get("third", 2) != null
+    }
+
+    def "Diagrams written to disk should be read back by a new cache"() {
+        given:
+        def directory = Files.createTempDirectory("diagrams")
+        new ArrowDiagramCache(1, directory).put("fingerprint", diagram)
+
+        when:
+        def cached = new ArrowDiagramCache(1, directory).get("fingerprint", 2)
+
+        then:
+        cached.toGraph() == diagram.toGraph()
+        (0..<cached.getNodeCount()).collect { cached.getNode(it).getLabel() } == (0..<diagram.getNodeCount()).collect { diagram.getNode(it).getLabel() }
+        (0..<cached.getEdgeCount()).collect { cached.getEdgeData(it) } == (0..<diagram.getEdgeCount()).collect { diagram.getEdgeData(it) }
+
+        cleanup:
+        directory.toFile().deleteDir()
+    }
+
+    def "Damaged or foreign files should be treated as a miss and deleted"() {
+        given:
+        def directory = Files.createTempDirectory("diagrams")
+        new ArrowDiagramCache(1, directory).put("fingerprint", diagram)
+        def file = directory.resolve("fingerprint.diagram")
+        def bytes = Files.readAllBytes(file)
+        Files.write(file, damage(bytes))
+
+        when:
+        def cached = new ArrowDiagramCache(1, directory).get("fingerprint", activityCount)
+
+        then:
+        cached == null
+        !Files.exists(file)
+
+        cleanup:
+        directory.toFile().deleteDir()
+
+        where:
+        activityCount | damage
+        2             | { byte[] b -> [0, 0, 0, 1, 0, 0, 0, 0] as byte[] }
+        2             | { byte[] b -> b[0..<(b.length - 3)] as byte[] }
+        2             | { byte[] b -> def c = b.clone(); (8..11).each { c[it] = 0x7f }; c }
+        2             | { byte[] b -> def c = b.clone(); c[-1] = 9; c }
+        1             | { byte[] b -> b }
+    }
+
+    def "Mapping the edge data should keep the structure and leave dummies empty"() {
+        when:
+        def mapped = diagram.mapEdgeData { ["X", "Y"][it] }
+
+        then:
+        mapped.toGraph() == diagram.toGraph()
+        (0..<mapped.getEdgeCount()).collect { mapped.getEdgeData(it) }.findAll() as Set == ["X", "Y"] as Set
+        (0..<mapped.getEdgeCount()).count { mapped.isDummy(it) } == 1
+    }
+
+}
@@ -4,6 +4,8 @@ import com.portkullis.projectdesigner.engine.AssignmentEngine
 import com.portkullis.projectdesigner.exception.ProjectDesignerRuntimeException
 import spock.lang.Specification
 
+import java.util.concurrent.ForkJoinPool
+
 class AssignmentEngineImplTest extends Specification {
 
     def static engine = new AssignmentEngineImpl<String, String>()
@@ -87,4 +89,96 @@ class AssignmentEngineImplTest extends Specification {
         1 * project.assignActivityToResource(activity3, dev1)
     }
 
+    def "Automatic assignment should give each activity the first resource that is available when it can start"() {
+        given:
+        project.getAssignedResources(_) >> []
+        project.getDuration(activity1) >> 10
+        project.getDuration(activity2) >> 5
+        project.getDuration(activity3) >> 5
+        project.getDirectPrerequisites(activity3) >> [activity1]
+        project.getDirectPrerequisites(_) >> []
+        project.getResourceType(_) >> "Developer"
+        project.getResourcesOfType("Developer") >> new TreeSet([dev1, dev2])
+
+        when:
+        engine.assignResources(project)
+
+        then:
+        1 * project.assignActivityToResource(activity1, dev1)
+        1 * project.assignActivityToResource(activity2, dev2)
+        1 * project.assignActivityToResource(activity3, dev1)
+    }
+
+    def "Automatic assignment should wait for a busy resource rather than overlap its activities"() {
+        given:
+        project.getAssignedResources(activity1) >> [dev1]
+        project.getAssignedResources(_) >> []
+        project.getDuration(_) >> 10
+        project.getDirectPrerequisites(_) >> []
+        project.getResourceType(activity1) >> null
+        project.getResourceType(_) >> "Developer"
+        project.getResourcesOfType("Developer") >> new TreeSet([dev1])
+
+        when:
+        engine.assignResources(project)
+
+        then:
+        0 * project.assignActivityToResource(activity1, _)
+        1 * project.assignActivityToResource(activity2, dev1)
+        1 * project.assignActivityToResource(activity3, dev1)
+    }
+
+    def "Automatic assignment should report its progress to the listener"() {
+        given:
+        def listener = Mock(AssignmentEngine.AssignmentListener)
+        def tracedEngine = new AssignmentEngineImpl<String, String>(listener)
+        project.getAssignedResources(activity1) >> [dev1]
+        project.getAssignedResources(_) >> []
+        project.getDuration(_) >> 10
+        project.getDirectPrerequisites(_) >> []
+        project.getResourceType(activity1) >> null
+        project.getResourceType(_) >> "Developer"
+        project.getResourcesOfType("Developer") >> new TreeSet([dev1])
+
+        when:
+        tracedEngine.assignResources(project)
+
+        then:
+        1 * listener.activityScheduled(activity1, 0, 10)
+        0 * listener.resourceAssigned(activity1, _, _, _)
+        1 * listener.activityPostponed(activity2, 0, 10)
+        1 * listener.activityScheduled(activity2, 10, 20)
+        1 * listener.resourceAssigned(activity2, dev1, 10, 20)
+        1 * listener.activityScheduled(activity3, 20, 30)
+        1 * listener.resourceAssigned(activity3, dev1, 20, 30)
+    }
+
+    def "A portfolio should keep the assignments of the priority rule whose schedule completes first"() {
+        given:
+        def portfolioEngine = new AssignmentEngineImpl<String, String>(ForkJoinPool.commonPool(), 2)
+        project.getAssignedResources(activity3) >> [dev1]
+        project.getAssignedResources(_) >> []
+        project.getDuration(_) >> 1
+        project.getDirectPrerequisites(activity2) >> [activity1]
+        project.getDirectPrerequisites(_) >> []
+        project.getResourceType(_) >> "Developer"
+        project.getResourcesOfType("Developer") >> new TreeSet([dev1, dev2])
+
+        when:
+        portfolioEngine.assignResources(project)
+
+        then:
+        1 * project.assignActivityToResource(activity1, dev1)
+        1 * project.assignActivityToResource(activity2, dev2)
+        0 * project.assignActivityToResource(activity3, _)
+    }
+
+    def "A portfolio without priority rules should fail"() {
+        when:
+        new AssignmentEngineImpl<String, String>(ForkJoinPool.commonPool(), [])
+
+        then:
+        thrown ProjectDesignerRuntimeException
+    }
+
 }
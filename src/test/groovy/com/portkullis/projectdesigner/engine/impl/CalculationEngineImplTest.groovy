@@ -1,8 +1,11 @@
 package com.portkullis.projectdesigner.engine.impl
 
 import com.portkullis.projectdesigner.engine.CalculationEngine
+import com.portkullis.projectdesigner.exception.CyclicDependencyException
 import spock.lang.Specification
 
+import java.util.concurrent.ForkJoinPool
+
 class CalculationEngineImplTest extends Specification {
 
     def activity1 = Mock(CalculationEngine.ActivityData)
@@ -91,4 +94,208 @@ class CalculationEngineImplTest extends Specification {
         engine.getTotalFloat(activity4) == 0
     }
 
+    def "A batch schedule should hold the times and floats of every activity by index"() {
+        when:
+        def schedule = engine.calculateSchedule([activity1, activity2, activity3, activity4])
+        def indices = [activity1, activity2, activity3, activity4].collect { schedule.indexOf(it) }
+
+        then:
+        indices.collect { schedule.earliestStarts[it] } == [0, 10, 10, 35]
+        indices.collect { schedule.latestStarts[it] } == [0, 20, 10, 35]
+        indices.collect { schedule.totalFloats[it] } == [0, 10, 0, 0]
+        indices.collect { schedule.freeFloats[it] } == [0, 10, 0, 0]
+    }
+
+    def "A batch schedule should include activities connected to the given activities"() {
+        when:
+        def schedule = engine.calculateSchedule([activity4])
+
+        then:
+        schedule.activities as Set == [activity1, activity2, activity3, activity4] as Set
+    }
+
+    def "The critical path should be the longest chain of activities"() {
+        when:
+        def schedule = engine.calculateSchedule([activity1, activity2, activity3, activity4])
+
+        then:
+        schedule.criticalPath.collect { schedule.activities[it] } == [activity1, activity3, activity4]
+    }
+
+    def "Cyclic prerequisites should be reported instead of calculated"() {
+        given:
+        def activity5 = Mock(CalculationEngine.ActivityData)
+        def activity6 = Mock(CalculationEngine.ActivityData)
+        activity5.prerequisites >> [activity6]
+        activity5.successors >> [activity6]
+        activity6.prerequisites >> [activity5]
+        activity6.successors >> [activity5]
+
+        when:
+        engine.getEarliestStartTime(activity5)
+
+        then:
+        def e = thrown(CyclicDependencyException)
+        e.getCycle() as Set == [activity5, activity6] as Set
+    }
+
+    def "Long chains of activities should be calculated without recursing through the chain"() {
+        given:
+        def chain = (0..<20000).collect { new ChainActivity() }
+        (1..<chain.size()).each { i ->
+            chain[i].prerequisites << chain[i - 1]
+            chain[i - 1].successors << chain[i]
+        }
+
+        expect:
+        engine.getEarliestStartTime(chain.last()) == 19999
+        engine.getLatestEndTime(chain.first()) == 1
+        chain.every { engine.getTotalFloat(it) == 0 }
+    }
+
+    def "The times of an activity should reflect changes the engine was notified of"() {
+        given:
+        def chain = (0..<3).collect { new ChainActivity() }
+        (1..<chain.size()).each { i ->
+            chain[i].prerequisites << chain[i - 1]
+            chain[i - 1].successors << chain[i]
+        }
+        engine.getEarliestStartTime(chain[2])
+
+        when:
+        chain[0].duration = 5
+        engine.durationChanged(chain[0])
+
+        then:
+        engine.getEarliestStartTime(chain[2]) == 6
+        engine.getLatestEndTime(chain[0]) == 5
+    }
+
+    def "Changing the duration of an activity should update the times that depend on it"() {
+        given:
+        def chain = (0..<3).collect { new ChainActivity() }
+        (1..<chain.size()).each { i ->
+            chain[i].prerequisites << chain[i - 1]
+            chain[i - 1].successors << chain[i]
+        }
+        def schedule = engine.calculateSchedule(chain)
+
+        when:
+        chain[0].duration = 5
+        schedule.durationChanged(chain[0])
+
+        then:
+        schedule.earliestStarts[schedule.indexOf(chain[2])] == 6
+        schedule.latestEnds[schedule.indexOf(chain[0])] == 5
+        schedule.earliestStarts[schedule.indexOf(chain[1])] == 5
+    }
+
+    def "Removing a prerequisite should update the times that depend on it"() {
+        given:
+        def chain = (0..<3).collect { new ChainActivity() }
+        (1..<chain.size()).each { i ->
+            chain[i].prerequisites << chain[i - 1]
+            chain[i - 1].successors << chain[i]
+        }
+        def schedule = engine.calculateSchedule(chain)
+
+        when:
+        chain[1].prerequisites.clear()
+        chain[0].successors.clear()
+        def updated = schedule.prerequisitesChanged(chain[1])
+
+        then:
+        updated
+        schedule.earliestStarts[schedule.indexOf(chain[1])] == 0
+        schedule.earliestStarts[schedule.indexOf(chain[2])] == 1
+        schedule.latestEnds[schedule.indexOf(chain[0])] == 1
+    }
+
+    def "Adding a prerequisite that joins two networks should require the schedule to be calculated again"() {
+        given:
+        def first = new ChainActivity(duration: 3)
+        def second = new ChainActivity(duration: 2)
+        def schedule = engine.calculateSchedule([first])
+
+        when:
+        second.prerequisites << first
+        first.successors << second
+        def updated = schedule.prerequisitesChanged(second)
+
+        then:
+        !updated
+        schedule.activities == [first]
+        engine.getEarliestStartTime(second) == 3
+        engine.getTotalFloat(first) == 0
+    }
+
+    def "Adding a prerequisite that joins two networks should calculate the joined network"() {
+        given:
+        def first = new ChainActivity(duration: 3)
+        def second = new ChainActivity(duration: 2)
+        engine.getEarliestStartTime(first)
+        engine.getEarliestStartTime(second)
+
+        when:
+        second.prerequisites << first
+        first.successors << second
+        engine.prerequisitesChanged(second)
+
+        then:
+        engine.getEarliestStartTime(second) == 3
+        engine.getTotalFloat(first) == 0
+    }
+
+    def "A change to an activity outside of a schedule should require the schedule to be calculated again"() {
+        given:
+        def activity = new ChainActivity(duration: 3)
+        def otherActivity = new ChainActivity(duration: 2)
+        def schedule = engine.calculateSchedule([activity])
+
+        when:
+        def updated = schedule.prerequisitesChanged(otherActivity)
+
+        then:
+        !updated
+        schedule.activities == [activity]
+        schedule.earliestEnds == [3] as int[]
+    }
+
+    def "A schedule calculated in parallel should be identical to the sequential schedule"() {
+        given:
+        def random = new Random(42)
+        def root = new ChainActivity()
+        def children = (0..<3000).collect { new ChainActivity(duration: random.nextInt(20)) }
+        def last = new ChainActivity()
+        children.each { child ->
+            child.prerequisites << root
+            root.successors << child
+        }
+        children.findAll { random.nextInt(10) == 0 }.each { child ->
+            last.prerequisites << child
+            child.successors << last
+        }
+        def pool = new ForkJoinPool(4)
+
+        when:
+        def sequential = engine.calculateSchedule([root])
+        def parallel = new CalculationEngineImpl(pool).calculateSchedule([root])
+
+        then:
+        parallel.activities == sequential.activities
+        parallel.earliestStarts == sequential.earliestStarts
+        parallel.latestStarts == sequential.latestStarts
+        parallel.totalFloats == sequential.totalFloats
+        parallel.freeFloats == sequential.freeFloats
+
+        cleanup:
+        pool.shutdown()
+    }
+
+    static class ChainActivity implements CalculationEngine.ActivityData {
+        int duration = 1
+        Collection<CalculationEngine.ActivityData> prerequisites = []
+        Collection<CalculationEngine.ActivityData> successors = []
+    }
+
 }
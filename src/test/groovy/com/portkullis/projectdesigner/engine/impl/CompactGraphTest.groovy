@@ -0,0 +1,74 @@
+package com.portkullis.projectdesigner.engine.impl
+
+import spock.lang.Specification
+
+class CompactGraphTest extends Specification {
+
+    def static A = new Node(1)
+    def static B = new Node(2)
+    def static C = new Node(3)
+    def static D = new Node(4)
+
+    def static AB = new Edge<String>(A, B, "AB")
+    def static AC = new Edge<String>(A, C, "AC")
+    def static BD = new Edge<String>(B, D)
+    def static CD = new Edge<String>(C, D, "CD")
+
+    Graph<String> graph = new Graph<>()
+
+    void setup() {
+        graph.getEdges().addAll([CD, BD, AC, AB])
+    }
+
+    def "Nodes should be numbered in topological order"() {
+        when:
+        def compact = CompactGraph.of(graph)
+
+        then:
+        compact.getNodeCount() == 4
+        compact.getEdgeCount() == 4
+        compact.getNode(0) == A
+        compact.getNode(3) == D
+        (0..<compact.getEdgeCount()).every { compact.getEdgeStart(it) < compact.getEdgeEnd(it) }
+    }
+
+    def "Out-edges and in-edges of a node should be found through the offsets"() {
+        given:
+        def compact = CompactGraph.of(graph)
+
+        when:
+        def outEdges = (compact.getOutEdgeOffset(0)..<compact.getOutEdgeOffset(1)).collect { compact.getEdge(it) }
+        def inEdges = (compact.getInEdgeOffset(3)..<compact.getInEdgeOffset(4)).collect { compact.getEdge(compact.getInEdge(it)) }
+
+        then:
+        outEdges as Set == [AB, AC] as Set
+        inEdges as Set == [BD, CD] as Set
+    }
+
+    def "Edge data should be kept and dummies should have no data"() {
+        given:
+        def compact = CompactGraph.of(graph)
+
+        expect:
+        (0..<compact.getEdgeCount()).collect { compact.getEdgeData(it) }.findAll() as Set == ["AB", "AC", "CD"] as Set
+        (0..<compact.getEdgeCount()).count { compact.isDummy(it) } == 1
+    }
+
+    def "Converting back to a graph should result in an equal graph"() {
+        expect:
+        CompactGraph.of(graph).toGraph() == graph
+    }
+
+    def "Reachable nodes should include all downstream nodes"() {
+        given:
+        def compact = CompactGraph.of(graph)
+
+        when:
+        def reachable = compact.getReachableNodes()
+
+        then:
+        reachable[0].cardinality() == 3
+        reachable[3].isEmpty()
+    }
+
+}
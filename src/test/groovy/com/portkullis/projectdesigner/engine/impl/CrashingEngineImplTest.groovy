@@ -0,0 +1,68 @@
+package com.portkullis.projectdesigner.engine.impl
+
+import com.portkullis.projectdesigner.engine.impl.CalculationEngineImplTest.ChainActivity
+import com.portkullis.projectdesigner.model.CrashOption
+import spock.lang.Specification
+
+class CrashingEngineImplTest extends Specification {
+
+    // a -> c, b -> c
+    def a = new ChainActivity(duration: 10)
+    def b = new ChainActivity(duration: 8)
+    def c = new ChainActivity(duration: 5, prerequisites: [a, b])
+    def crashOptions = [
+            (a): new CrashOption(6, 10),
+            (b): new CrashOption(6, 3),
+            (c): new CrashOption(4, 20)
+    ]
+
+    def engine = new CrashingEngineImpl()
+
+    void setup() {
+        a.successors << c
+        b.successors << c
+    }
+
+    def "Crashing should stop once the target duration is reached"() {
+        when:
+        def plan = engine.crash([a, b, c], crashOptions, 13)
+
+        then:
+        plan.completionTime == 13
+        plan.totalCost == 20
+        plan.crashCurve == [15: 0d, 14: 10d, 13: 20d]
+        plan.durations[plan.activities.indexOf(a)] == 8
+        plan.durations[plan.activities.indexOf(b)] == 8
+        a.duration == 10
+    }
+
+    def "The cheapest activities on every critical path should be crashed together"() {
+        when:
+        def plan = engine.crash([a, b, c], crashOptions, 11)
+
+        then:
+        plan.completionTime == 11
+        plan.crashCurve == [15: 0d, 14: 10d, 13: 20d, 12: 33d, 11: 46d]
+    }
+
+    def "Crashing should stop when a critical path can not be shortened any further"() {
+        when:
+        def plan = engine.crash([a, b, c], crashOptions, 0)
+
+        then:
+        plan.completionTime == 10
+        plan.totalCost == 66
+        plan.durations as List == plan.activities.collect { crashOptions[it].crashDuration }
+    }
+
+    def "Activities without a crash option should never be crashed"() {
+        when:
+        def plan = engine.crash([a, b, c], [(b): crashOptions[b]], 0)
+
+        then:
+        plan.completionTime == 15
+        plan.totalCost == 0
+        plan.crashCurve == [15: 0d]
+    }
+
+}
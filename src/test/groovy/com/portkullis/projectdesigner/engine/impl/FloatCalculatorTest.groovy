@@ -0,0 +1,58 @@
+package com.portkullis.projectdesigner.engine.impl
+
+import com.portkullis.projectdesigner.engine.VisualizationEngine
+import com.portkullis.projectdesigner.model.EdgeProperties
+import spock.lang.Specification
+
+class FloatCalculatorTest extends Specification {
+
+    def "The total float of each edge should be the slack before the end of the diagram is delayed"() {
+        given:
+        def start = new Node(1)
+        def a = new Node(2)
+        def b = new Node(3)
+        def end = new Node(4)
+        def graph = new Graph<VisualizationEngine.ActivityData>()
+        graph.getEdges().addAll([
+                new Edge<>(start, a, activity(10)),
+                new Edge<>(start, b, activity(25)),
+                new Edge<>(a, end, activity(5)),
+                new Edge<>(a, b),
+                new Edge<>(b, end, activity(20))
+        ])
+        def compact = CompactGraph.of(graph)
+
+        when:
+        def floats = new FloatCalculator(compact).getTotalFloats()
+        def floatsByEdge = (0..<compact.getEdgeCount()).collectEntries { [(compact.getEdge(it)): floats[it]] }
+
+        then:
+        floatsByEdge[new Edge<>(start, a)] == 15
+        floatsByEdge[new Edge<>(start, b)] == 0
+        floatsByEdge[new Edge<>(a, end)] == 30
+        floatsByEdge[new Edge<>(a, b)] == 15
+        floatsByEdge[new Edge<>(b, end)] == 0
+    }
+
+    def "Floats of a long chain of activities should be calculated without recursion"() {
+        given:
+        def nodes = (0..100000).collect { new Node(it) }
+        def step = activity(1)
+        def graph = new Graph<VisualizationEngine.ActivityData>()
+        (1..<nodes.size()).each { graph.getEdges().add(new Edge<>(nodes[it - 1], nodes[it], step)) }
+
+        when:
+        def floats = new FloatCalculator(CompactGraph.of(graph)).getTotalFloats()
+
+        then:
+        floats.length == 100000
+        floats.every { it == 0 }
+    }
+
+    private VisualizationEngine.ActivityData activity(int duration) {
+        Stub(VisualizationEngine.ActivityData) {
+            getEdgeProperties() >> new EdgeProperties("A", duration)
+        }
+    }
+
+}
@@ -1,7 +1,10 @@
 package com.portkullis.projectdesigner.engine.impl
 
+import com.portkullis.projectdesigner.exception.ProjectDesignerRuntimeException
 import spock.lang.Specification
 
+import java.util.concurrent.ForkJoinPool
+
 class GraphTest extends Specification {
 
     def static A = new Node(1)
@@ -24,6 +27,38 @@ class GraphTest extends Specification {
     def static EF = new Edge<String>(E, F)
     def static EG = new Edge<String>(E, G)
 
+    def "Adding edges should add their nodes to the graph"() {
+        given:
+        Graph<String> graph = new Graph<>()
+
+        when:
+        graph.getEdges().add(AB)
+        graph.getEdges().add(BC)
+
+        then:
+        graph.getNodes() == [A, B, C] as Set
+        graph.getOutEdges(B) == [BC] as Set
+        graph.getInEdges(B) == [AB] as Set
+    }
+
+    def "Removing edges should update the node adjacency"() {
+        given:
+        Graph<String> graph = new Graph<>()
+        graph.getEdges().add(AB)
+        graph.getEdges().add(AC)
+        graph.getEdges().add(BC)
+
+        when:
+        graph.getEdges().remove(AB)
+        graph.getEdges().removeIf { it == BC }
+
+        then:
+        graph.getOutEdges(A) == [AC] as Set
+        graph.getOutEdges(B).isEmpty()
+        graph.getInEdges(C) == [AC] as Set
+        graph.getStartNodes() == [A, B] as Set
+    }
+
     def "Collapsing edges should work"() {
         given:
         Graph<String> graph = new Graph<>()
@@ -84,6 +119,23 @@ class GraphTest extends Specification {
         graph.getEdges().contains(EG)
     }
 
+    def "Merging a node that has already been merged should merge the node it was merged into"() {
+        given:
+        Graph<String> graph = new Graph<>()
+        graph.getEdges().addAll([new Edge<String>(G, A), new Edge<String>(G, B), new Edge<String>(G, C)])
+        graph.getEdges().add(new Edge<>(A, D, "AD"))
+        graph.getEdges().add(new Edge<>(B, E, "BE"))
+        graph.getEdges().add(new Edge<>(C, F, "CF"))
+
+        when:
+        graph.mergeNodes(A, B)
+        graph.mergeNodes(A, C)
+
+        then:
+        graph.getNodes() == [C, D, E, F, G] as Set
+        graph.getEdges() == [new Edge<String>(G, C), new Edge<String>(C, D), new Edge<String>(C, E), new Edge<String>(C, F)] as Set
+    }
+
     def "A graph with one dummy followed by one activity should be simplified to a graph with a single activity"() {
         given:
         Graph<String> graph = new Graph<>()
@@ -140,6 +192,21 @@ class GraphTest extends Specification {
         graph.getEdges().contains(EG)
     }
 
+    def "A chain of dummies following an activity should be collapsed into the activity"() {
+        given:
+        Graph<String> graph = new Graph<>()
+        graph.getEdges().add(new Edge<>(A, B, "Test"))
+        graph.getEdges().addAll([BC, CD, new Edge<String>(D, E), EF])
+
+        when:
+        graph.simplifyDummies()
+
+        then:
+        graph.getNodes() == [A, F] as Set
+        graph.getEdges().size() == 1
+        graph.getEdges().contains(new Edge<String>(A, F))
+    }
+
     def "Triangles can not be collapsed"() {
         given:
         Graph<String> graph = new Graph<>()
@@ -156,4 +223,134 @@ class GraphTest extends Specification {
         graph.getEdges().containsAll(AB, AC, BC, CD)
     }
 
+    def "Prerequisite activities should be updated when the graph changes"() {
+        given:
+        Graph<String> graph = new Graph<>()
+        graph.getEdges().add(new Edge<>(A, B, "AB"))
+        graph.getEdges().add(new Edge<>(A, C, "AC"))
+        graph.getEdges().add(BD)
+        graph.getEdges().add(CD)
+        graph.getEdges().add(new Edge<>(D, E, "DE"))
+
+        expect:
+        graph.getPrerequisiteActivities(B).cardinality() == 1
+        graph.getPrerequisiteActivities(D).cardinality() == 2
+        graph.getPrerequisiteActivities(E).cardinality() == 3
+
+        when:
+        graph.getEdges().remove(CD)
+
+        then:
+        graph.getPrerequisiteActivities(D) == graph.getPrerequisiteActivities(B)
+        graph.getPrerequisiteActivities(E).cardinality() == 2
+    }
+
+    def "Dummies that bypass a deep chain of diamonds should be removed without enumerating paths"() {
+        given:
+        Graph<String> graph = new Graph<>()
+        def layers = (0..40).collect { new Node(100 + it * 3) }
+        (0..<40).each { i ->
+            def a = new Node(101 + i * 3)
+            def b = new Node(102 + i * 3)
+            graph.getEdges().add(new Edge<>(layers[i], a, "A" + i))
+            graph.getEdges().add(new Edge<>(layers[i], b, "B" + i))
+            graph.getEdges().add(new Edge<>(a, layers[i + 1]))
+            graph.getEdges().add(new Edge<>(b, layers[i + 1]))
+        }
+        def shortcut = new Edge<String>(layers[0], layers[40])
+        graph.getEdges().add(shortcut)
+
+        when:
+        graph.findAndDeleteRedundantDummies()
+
+        then:
+        !graph.getEdges().contains(shortcut)
+        graph.getEdges().size() == 160
+    }
+
+    def "The topological order should place every node before the nodes it leads to"() {
+        given:
+        Graph<String> graph = new Graph<>()
+        graph.getEdges().addAll([AB, AC, BC, CD, CE, EF, EG])
+
+        when:
+        def order = graph.getTopologicalOrder()
+
+        then:
+        order.size() == 7
+        graph.getEdges().every { order.indexOf(it.start) < order.indexOf(it.end) }
+    }
+
+    def "Calculating the topological order of a cyclic graph should fail"() {
+        given:
+        Graph<String> graph = new Graph<>()
+        graph.getEdges().addAll([AB, BC, new Edge<String>(C, A)])
+
+        when:
+        graph.getTopologicalOrder()
+
+        then:
+        thrown ProjectDesignerRuntimeException
+    }
+
+    def "A graph should be split into regions at the nodes that every path passes through"() {
+        given:
+        Graph<String> graph = milestoneGraph()
+
+        when:
+        def regions = graph.getRegionsBetweenCutNodes()
+
+        then:
+        regions.size() == 3
+        regions.sum { it.getEdges().size() } == graph.getEdges().size()
+    }
+
+    def "Simplifying regions in parallel should result in a graph equivalent to simplifying sequentially"() {
+        given:
+        Graph<String> sequential = milestoneGraph()
+        Graph<String> parallel = milestoneGraph()
+
+        when:
+        sequential.simplifyDummies()
+        parallel.simplifyDummies(ForkJoinPool.commonPool())
+
+        then:
+        parallel.getNodes().size() == sequential.getNodes().size()
+        parallel.getEdges().size() == sequential.getEdges().size()
+        parallel.getEdges().count { !it.getData().isPresent() } == sequential.getEdges().count { !it.getData().isPresent() }
+        getReachableActivities(parallel) == getReachableActivities(sequential)
+        getReachableActivities(parallel).keySet() == ["A1", "A2", "M", "B1", "B2"] as Set
+    }
+
+    private static Map<String, Set<String>> getReachableActivities(Graph<String> graph) {
+        graph.getEdges().findAll { it.getData().isPresent() }.collectEntries { activityEdge ->
+            def reachable = [] as Set
+            def visited = [activityEdge.getEnd()] as Set
+            def nodesToVisit = [activityEdge.getEnd()] as ArrayDeque
+            while (!nodesToVisit.isEmpty()) {
+                graph.getOutEdges(nodesToVisit.poll()).each { edge ->
+                    edge.getData().ifPresent { reachable << it }
+                    if (visited.add(edge.getEnd())) {
+                        nodesToVisit << edge.getEnd()
+                    }
+                }
+            }
+            [(activityEdge.getData().get()): reachable]
+        }
+    }
+
+    private static Graph<String> milestoneGraph() {
+        def nodes = (1..14).collect { new Node(it) }
+        Graph<String> graph = new Graph<>()
+        [[0, 1], [0, 3], [2, 5], [4, 5], [6, 7], [7, 8], [7, 10], [9, 12], [11, 12]].each {
+            graph.getEdges().add(new Edge<String>(nodes[it[0]], nodes[it[1]]))
+        }
+        graph.getEdges().add(new Edge<>(nodes[1], nodes[2], "A1"))
+        graph.getEdges().add(new Edge<>(nodes[3], nodes[4], "A2"))
+        graph.getEdges().add(new Edge<>(nodes[5], nodes[6], "M"))
+        graph.getEdges().add(new Edge<>(nodes[8], nodes[9], "B1"))
+        graph.getEdges().add(new Edge<>(nodes[10], nodes[11], "B2"))
+        return graph
+    }
+
 }
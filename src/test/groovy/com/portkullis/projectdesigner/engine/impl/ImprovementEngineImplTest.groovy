@@ -0,0 +1,57 @@
+package com.portkullis.projectdesigner.engine.impl
+
+import com.portkullis.projectdesigner.engine.AssignmentEngine
+import spock.lang.Specification
+
+import java.time.Instant
+
+class ImprovementEngineImplTest extends Specification {
+
+    def static activity1 = "Activity 1"
+    def static activity2 = "Activity 2"
+    def static activity3 = "Activity 3"
+
+    def static dev1 = "Developer 1"
+    def static dev2 = "Developer 2"
+
+    def engine = new ImprovementEngineImpl<String, String>()
+
+    def project = Mock(AssignmentEngine.ProjectData)
+
+    void setup() {
+        // Both long activities are assigned to the same developer...
+        project.getActivities() >> [activity1, activity2, activity3]
+        project.getAssignedResources(activity1) >> [dev1]
+        project.getAssignedResources(activity2) >> [dev1]
+        project.getAssignedResources(activity3) >> [dev2]
+        project.getDuration(activity1) >> 10
+        project.getDuration(activity2) >> 10
+        project.getDuration(activity3) >> 1
+        project.getDirectPrerequisites(_) >> []
+        project.getResourceType(_) >> "Developer"
+        project.getResourcesOfType("Developer") >> new TreeSet([dev1, dev2])
+    }
+
+    def "Improving the assignments should move activities off the busiest resource"() {
+        when:
+        def improvement = engine.improve(project, Instant.now().plusMillis(500), { false })
+
+        then:
+        improvement.initialCompletionTime == 20
+        improvement.completionTime == 11
+        improvement.evaluatedMoves > 0
+        improvement.assignments[activity1] != improvement.assignments[activity2]
+        0 * project.assignActivityToResource(_, _)
+    }
+
+    def "A cancelled search should return the current assignments"() {
+        when:
+        def improvement = engine.improve(project, Instant.now().plusSeconds(60), { true })
+
+        then:
+        improvement.completionTime == 20
+        improvement.evaluatedMoves == 0
+        improvement.assignments == [(activity1): dev1, (activity2): dev1, (activity3): dev2]
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.portkullis.projectdesigner.engine.impl
+
+import com.portkullis.projectdesigner.engine.LevelingEngine
+import spock.lang.Specification
+
+class LevelingEngineImplTest extends Specification {
+
+    def static activity1 = "Activity 1"
+    def static activity2 = "Activity 2"
+    def static activity3 = "Activity 3"
+    def static activity4 = "Activity 4"
+
+    def engine = new LevelingEngineImpl<String>()
+
+    def project = Mock(LevelingEngine.ProjectData)
+
+    void setup() {
+        // activity1 -> activity3, with activity2 and activity4 free to move until the end of activity3...
+        project.getActivities() >> [activity1, activity2, activity3, activity4]
+        project.getDuration(_) >> 5
+        project.getDirectPrerequisites(activity3) >> [activity1]
+        project.getDirectPrerequisites(_) >> []
+        project.getResourceType(activity1) >> "Developer"
+        project.getResourceType(activity2) >> "Developer"
+        project.getResourceType(activity3) >> "Tester"
+        project.getResourceType(activity4) >> "Manager"
+        project.getResourceTypes() >> (["Developer", "Tester"] as Set)
+    }
+
+    def "Leveling should delay activities within their float to lower the peak demand"() {
+        when:
+        def plan = engine.level(project)
+
+        then:
+        plan.starts == [(activity1): 0, (activity2): 5, (activity3): 5, (activity4): 0]
+        plan.completionTime == 10
+        plan.initialPeakDemands == [Developer: 2, Tester: 1]
+        plan.peakDemands == [Developer: 1, Tester: 1]
+    }
+
+    def "Leveling should never raise the peak demand"() {
+        given:
+        def activities = (0..5).collect { "Activity ${it + 1}" as String }
+        def durations = [3, 4, 4, 3, 3, 3]
+        def otherProject = Mock(LevelingEngine.ProjectData)
+        otherProject.getActivities() >> activities
+        otherProject.getDuration(_) >> { String activity -> durations[activities.indexOf(activity)] }
+        otherProject.getDirectPrerequisites(activities[2]) >> [activities[0], activities[1]]
+        otherProject.getDirectPrerequisites(activities[3]) >> [activities[1]]
+        otherProject.getDirectPrerequisites(activities[5]) >> [activities[1]]
+        otherProject.getDirectPrerequisites(_) >> []
+        otherProject.getResourceType(_) >> "Developer"
+        otherProject.getResourceTypes() >> (["Developer"] as Set)
+
+        when:
+        def plan = engine.level(otherProject)
+
+        then:
+        plan.completionTime == 8
+        plan.initialPeakDemands == [Developer: 3]
+        plan.peakDemands == [Developer: 3]
+    }
+
+}
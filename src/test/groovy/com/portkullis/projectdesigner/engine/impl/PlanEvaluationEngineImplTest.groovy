@@ -0,0 +1,68 @@
+package com.portkullis.projectdesigner.engine.impl
+
+import com.portkullis.projectdesigner.adapter.ProjectPlanEvaluationDataAdapter
+import com.portkullis.projectdesigner.model.Activity
+import com.portkullis.projectdesigner.model.Plan
+import com.portkullis.projectdesigner.model.Project
+import spock.lang.Specification
+
+class PlanEvaluationEngineImplTest extends Specification {
+
+    def static activity1 = new Activity(1, "Activity 1", 10)
+    def static activity2 = new Activity(2, "Activity 2", 10)
+    def static activity3 = new Activity(3, "Activity 3", 5, activity1)
+
+    def static dev1 = "Developer 1"
+    def static dev2 = "Developer 2"
+
+    def project = new Project<Activity, String>()
+
+    def engine = new PlanEvaluationEngineImpl<Activity, String>()
+
+    void setup() {
+        project.utilityData.addAll([activity1, activity2, activity3])
+        [activity1, activity2, activity3].each { project.activityTypes[it] = "Developer" }
+
+        def onePlan = new Plan<Activity, String>()
+        onePlan.resources << dev1
+        onePlan.resourceTypes["Developer"] = new TreeSet([dev1])
+        project.plans["One developer"] = onePlan
+
+        def twoPlan = new Plan<Activity, String>()
+        twoPlan.resources.addAll([dev1, dev2])
+        twoPlan.resourceTypes["Developer"] = new TreeSet([dev1, dev2])
+        project.plans["Two developers"] = twoPlan
+    }
+
+    def "Every plan should be evaluated with its own resources"() {
+        when:
+        def evaluations = engine.evaluatePlans(new ProjectPlanEvaluationDataAdapter(project))
+
+        then:
+        evaluations.keySet() == ["One developer", "Two developers"] as Set
+
+        with(evaluations["One developer"]) {
+            completionTime == 25
+            starts == [(activity1): 0, (activity2): 15, (activity3): 10]
+            criticalActivityCount == 3
+            averageTotalFloat == 0
+        }
+
+        with(evaluations["Two developers"]) {
+            completionTime == 15
+            starts == [(activity1): 0, (activity2): 0, (activity3): 10]
+            assignments == [(activity1): [dev1], (activity2): [dev2], (activity3): [dev1]]
+            totalFloats == [(activity1): 0, (activity2): 5, (activity3): 0]
+            criticalActivityCount == 2
+        }
+    }
+
+    def "Evaluating the plans should not change the project"() {
+        when:
+        engine.evaluatePlans(new ProjectPlanEvaluationDataAdapter(project))
+
+        then:
+        project.plans.values().every { it.activityAssignments.isEmpty() }
+    }
+
+}
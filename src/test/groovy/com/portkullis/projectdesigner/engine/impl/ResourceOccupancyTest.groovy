@@ -0,0 +1,56 @@
+package com.portkullis.projectdesigner.engine.impl
+
+import spock.lang.Specification
+
+class ResourceOccupancyTest extends Specification {
+
+    def occupancy = new ResourceOccupancy<String>()
+
+    void setup() {
+        occupancy.occupy("dev1", 0, 10)
+        occupancy.occupy("dev1", 15, 20)
+        occupancy.occupy("dev1", 30, 40)
+        occupancy.occupy("dev2", 0, 25)
+    }
+
+    def "A resource should only be free over spans that do not overlap its occupied spans"() {
+        expect:
+        occupancy.isFree("dev1", start, end) == free
+
+        where:
+        start | end || free
+        10    | 15  || true
+        9     | 15  || false
+        10    | 16  || false
+        20    | 30  || true
+        40    | 100 || true
+        25    | 35  || false
+    }
+
+    def "The first free resource should be found in order of preference"() {
+        expect:
+        occupancy.findFirstFree(["dev1", "dev2", "dev3"], 10, 15) == Optional.of("dev1")
+        occupancy.findFirstFree(["dev1", "dev2", "dev3"], 5, 15) == Optional.of("dev3")
+        occupancy.findFirstFree(["dev1", "dev2"], 5, 15) == Optional.empty()
+    }
+
+    def "The earliest start should skip gaps that are too short"() {
+        expect:
+        occupancy.findEarliestStart("dev1", 0, 5) == 10
+        occupancy.findEarliestStart("dev1", 0, 6) == 20
+        occupancy.findEarliestStart("dev1", 0, 11) == 40
+        occupancy.findEarliestStart(["dev1", "dev2"], 0, 8) == 20
+        occupancy.findEarliestStart("dev3", 7, 100) == 7
+    }
+
+    def "Occupying a span should merge it with the spans it touches"() {
+        when:
+        occupancy.occupy("dev1", 10, 15)
+        occupancy.occupy("dev1", 18, 31)
+
+        then:
+        !occupancy.isFree("dev1", 0, 40)
+        occupancy.findEarliestStart("dev1", 0, 1) == 40
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.portkullis.projectdesigner.engine.impl
+
+import com.portkullis.projectdesigner.engine.impl.CalculationEngineImplTest.ChainActivity
+import com.portkullis.projectdesigner.model.DurationDistribution
+import spock.lang.Specification
+
+import java.util.concurrent.ForkJoinPool
+
+class RiskEngineImplTest extends Specification {
+
+    def engine = new RiskEngineImpl()
+
+    def "Every activity of a single chain should always be critical"() {
+        given:
+        def chain = chain(3)
+        def distributions = [(chain[1]): DurationDistribution.triangular(5, 10, 15)]
+
+        when:
+        def profile = engine.simulate(chain, distributions, 10000, 1)
+
+        then:
+        profile.iterations == 10000
+        profile.criticalityIndices as List == [1.0d, 1.0d, 1.0d]
+        profile.getCompletionQuantile(0) >= 7
+        profile.getCompletionQuantile(1) <= 17
+        profile.getCompletionQuantile(0.5) <= profile.getCompletionQuantile(0.8)
+        profile.getCompletionQuantile(0.8) <= profile.getCompletionQuantile(0.95)
+        Math.abs(profile.meanCompletion - 12) < 0.1
+    }
+
+    def "An uncertain activity in parallel with a fixed one should be critical in some iterations"() {
+        given:
+        def fixed = new ChainActivity(duration: 10)
+        def uncertain = new ChainActivity(duration: 10)
+
+        when:
+        def profile = engine.simulate([fixed, uncertain], [(uncertain): DurationDistribution.triangular(5, 10, 15)], 10000, 1)
+        def criticality = profile.criticalityIndices
+
+        then:
+        profile.getCompletionQuantile(0.5) == 10
+        criticality[profile.activities.indexOf(fixed)] > 0.5
+        criticality[profile.activities.indexOf(uncertain)] > 0.5
+        criticality[profile.activities.indexOf(uncertain)] < 1
+    }
+
+    def "The same seed should give the same results on any number of threads"() {
+        given:
+        def chain = chain(50)
+        def distributions = chain.collectEntries { [(it): DurationDistribution.pert(1, 2, 6)] }
+
+        when:
+        def first = new RiskEngineImpl(new ForkJoinPool(1)).simulate(chain, distributions, 5000, 42)
+        def second = new RiskEngineImpl(new ForkJoinPool(4)).simulate(chain, distributions, 5000, 42)
+
+        then:
+        first.meanCompletion == second.meanCompletion
+        first.getCompletionQuantile(0.8) == second.getCompletionQuantile(0.8)
+    }
+
+    def "Sampled durations should stay within the range of the distribution"() {
+        given:
+        def random = new SplittableRandom(7)
+
+        expect:
+        (1..10000).collect { distribution.sample(random) }.every { it >= 3 && it <= 9 }
+
+        where:
+        distribution << [
+                DurationDistribution.triangular(3, 4, 9),
+                DurationDistribution.pert(3, 8, 9),
+                DurationDistribution.beta(3, 9, 0.5, 0.5)
+        ]
+    }
+
+    private static List<ChainActivity> chain(int size) {
+        def chain = (0..<size).collect { new ChainActivity(duration: 1) }
+        (1..<chain.size()).each { i ->
+            chain[i].prerequisites << chain[i - 1]
+            chain[i - 1].successors << chain[i]
+        }
+        chain
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.portkullis.projectdesigner.engine.impl
+
+import com.portkullis.projectdesigner.exception.ProjectDesignerRuntimeException
+import spock.lang.Specification
+
+class ScenarioKernelTest extends Specification {
+
+    // a -> b -> d, a -> c -> d
+    def prerequisites = [a: [], b: ['a'], c: ['a'], d: ['b', 'c']]
+    def kernel = ScenarioKernel.of(['d', 'c', 'b', 'a'], { prerequisites[it] })
+
+    def "Each scenario should be calculated with its own durations"() {
+        given:
+        def scenarios = [
+                [a: 1, b: 2, c: 3, d: 4],
+                [a: 1, b: 5, c: 3, d: 4],
+                [a: 0, b: 0, c: 0, d: 0]
+        ]
+
+        when:
+        def earliestEnds = kernel.calculateEarliestEnds(durations(scenarios))
+        def completions = kernel.calculateCompletionTimes(durations(scenarios))
+
+        then:
+        earliestEnds[0][kernel.indexOf('d')] == 8
+        earliestEnds[1][kernel.indexOf('c')] == 4
+        earliestEnds[1][kernel.indexOf('d')] == 10
+        completions as List == [8, 10, 0]
+    }
+
+    def "Scenarios in several blocks should all be calculated"() {
+        given:
+        def scenarios = (0..<300).collect { [a: it, b: 1, c: 2, d: 3] }
+
+        expect:
+        kernel.calculateCompletionTimes(durations(scenarios)) as List == (0..<300).collect { it + 5 }
+    }
+
+    def "A scenario with the wrong number of durations should be rejected"() {
+        when:
+        kernel.calculateCompletionTimes([[1, 2, 3] as int[]] as int[][])
+
+        then:
+        thrown(ProjectDesignerRuntimeException)
+    }
+
+    private int[][] durations(List<Map<String, Integer>> scenarios) {
+        scenarios.collect { scenario -> kernel.activities.collect { scenario[it] } as int[] } as int[][]
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.portkullis.projectdesigner.engine.impl
+
+import com.portkullis.projectdesigner.exception.CyclicDependencyException
+import spock.lang.Specification
+
+class TopologicalOrderTest extends Specification {
+
+    def "Every activity should appear after all of its prerequisites"() {
+        given:
+        def prerequisites = [A: [], B: ['A'], C: ['A'], D: ['B', 'C']]
+
+        when:
+        def order = TopologicalOrder.of(['D', 'C', 'B', 'A'], { prerequisites[it] })
+
+        then:
+        order.size() == 4
+        order.indexOf('A') == 0
+        order.indexOf('D') == 3
+        prerequisites.every { a, p -> p.every { order.indexOf(it) < order.indexOf(a) } }
+    }
+
+    def "Prerequisites outside the sorted activities should be ignored"() {
+        when:
+        def order = TopologicalOrder.of(['B'], { it == 'B' ? ['A'] : [] })
+
+        then:
+        order.getActivities() == ['B']
+        order.indexOf('A') == -1
+    }
+
+    def "A cycle in the prerequisites should be reported with the activities that form it"() {
+        given:
+        def prerequisites = [A: [], B: ['A', 'D'], C: ['B'], D: ['C'], E: ['D']]
+
+        when:
+        TopologicalOrder.of(prerequisites.keySet(), { prerequisites[it] })
+
+        then:
+        def e = thrown(CyclicDependencyException)
+        e.getCycle() as Set == ['B', 'C', 'D'] as Set
+        e.getCycle().indices.every { i -> prerequisites[e.getCycle()[(i + 1) % 3]].contains(e.getCycle()[i]) }
+    }
+
+}